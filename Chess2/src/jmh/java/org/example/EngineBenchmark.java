@@ -0,0 +1,182 @@
+package org.example;
+
+import org.example.engine.MoveGenerator;
+import org.example.engine.MoveList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замеры основных операций движка на позициях из дебюта, миттельшпиля и эндшпиля.
+ * Запуск: mvn -B -Pjmh package, затем java -jar target/benchmarks.jar -prof gc,
+ * профилировщик gc показывает объем выделяемой памяти на операцию.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark {
+
+    private static final String[] openingMoves = {"e2e4", "e7e5", "g1f3", "b8c6"};
+
+    private static final String[] middlegameMoves = {
+            "e2e4", "e7e5", "g1f3", "b8c6", "f1c4", "f8c5", "c2c3", "g8f6",
+            "d2d3", "d7d6", "e1g1", "e8g8", "b1d2", "a7a6", "c4b3", "c5a7",
+            "h2h3", "c8e6", "f1e1", "f8e8"
+    };
+
+    private static final String[] endgameMoves = {"d1d7"};
+
+    @Param({"opening", "middlegame", "endgame"})
+    public String position;
+
+    private Pieces pieces;
+    private Pieces beforeLastMove;
+    private int lastMove;
+    private final MoveList moveList = new MoveList();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        switch (position) {
+            case "opening" -> {
+                pieces = new Pieces();
+                play(openingMoves);
+            }
+            case "middlegame" -> {
+                pieces = new Pieces();
+                play(middlegameMoves);
+            }
+            case "endgame" -> {
+                pieces = new Pieces(endgameBoard());
+                play(endgameMoves);
+            }
+            default -> throw new IllegalArgumentException("Неизвестная позиция: " + position);
+        }
+    }
+
+    /**
+     * Делает ходы вида "e2e4" от текущей позиции, запоминая последний ход
+     * @param moves последовательность ходов
+     */
+    private void play(String[] moves) {
+        for (String move : moves) {
+            Coordinate from = new Coordinate(move.charAt(0), move.charAt(1) - '0');
+            Coordinate to = new Coordinate(move.charAt(2), move.charAt(3) - '0');
+            Piece piece = pieces.getPiece(from);
+            if (piece == null)
+                throw new IllegalArgumentException("На поле " + from + " нет фигуры.");
+            beforeLastMove = new Pieces(pieces);
+            lastMove = packMove(from, to);
+            pieces.makeMove(to, piece);
+        }
+    }
+
+    /**
+     * Находит ход среди допустимых ходов фигуры вместе с флагами
+     * @param from исходное поле
+     * @param to поле назначения
+     * @return упакованный ход
+     * @throws IllegalArgumentException если ход недопустим
+     */
+    private int packMove(Coordinate from, Coordinate to) {
+        moveList.clear();
+        int count = MoveGenerator.generateFrom(pieces, Bitboards.square(from), moveList);
+        for (int i = 0; i < count; i++) {
+            if (PackedMove.to(moveList.get(i)) == Bitboards.square(to))
+                return moveList.get(i);
+        }
+        throw new IllegalArgumentException("Ход " + from + to + " недопустим в позиции.");
+    }
+
+    /**
+     * Создает ладейный эндшпиль с пешками на обоих флангах
+     * @return карта координат и фигур
+     */
+    private static HashMap<Coordinate, Piece> endgameBoard() {
+        HashMap<Coordinate, Piece> board = new HashMap<>();
+        put(board, ID.KING, COLOUR.W, 'g', 1, true);
+        put(board, ID.ROOK, COLOUR.W, 'd', 1, true);
+        put(board, ID.PAWN, COLOUR.W, 'b', 4, true);
+        put(board, ID.PAWN, COLOUR.W, 'f', 2, false);
+        put(board, ID.PAWN, COLOUR.W, 'g', 2, false);
+        put(board, ID.PAWN, COLOUR.W, 'h', 2, false);
+        put(board, ID.KING, COLOUR.B, 'g', 8, true);
+        put(board, ID.ROOK, COLOUR.B, 'e', 8, true);
+        put(board, ID.PAWN, COLOUR.B, 'a', 6, true);
+        put(board, ID.PAWN, COLOUR.B, 'f', 7, false);
+        put(board, ID.PAWN, COLOUR.B, 'g', 7, false);
+        put(board, ID.PAWN, COLOUR.B, 'h', 7, false);
+        return board;
+    }
+
+    /**
+     * Ставит фигуру на доску
+     * @param board карта координат и фигур
+     * @param name тип фигуры
+     * @param colour цвет фигуры
+     * @param file вертикаль
+     * @param rank горизонталь
+     * @param hasMoved ходила ли фигура
+     */
+    private static void put(HashMap<Coordinate, Piece> board, ID name, COLOUR colour, char file, int rank, boolean hasMoved) {
+        Coordinate coordinate = new Coordinate(file, rank);
+        Piece piece = Boards.createPiece(name, colour, coordinate);
+        piece.setHasMoved(hasMoved);
+        board.put(coordinate, piece);
+    }
+
+    @Benchmark
+    public void updatePotentials() {
+        pieces.updatePotentials();
+    }
+
+    @Benchmark
+    public void removeOwnCheck(Blackhole blackhole) {
+        long own = pieces.getColourBitboard(pieces.getSideToMove());
+        while (own != 0) {
+            int square = Long.numberOfTrailingZeros(own);
+            own &= own - 1;
+            blackhole.consume(pieces.getPiece(square).removeOwnCheck(pieces));
+        }
+    }
+
+    @Benchmark
+    public boolean isCheck() {
+        return pieces.isCheck(pieces.getSideToMove());
+    }
+
+    @Benchmark
+    public boolean isMate() {
+        return pieces.isMate(pieces.getSideToMove());
+    }
+
+    @Benchmark
+    public boolean isDraw() {
+        return pieces.isDraw();
+    }
+
+    @Benchmark
+    public String moveString() {
+        return ChessIO.moveString(beforeLastMove, lastMove, moveList);
+    }
+
+    @Benchmark
+    public Pieces copy() {
+        return new Pieces(pieces);
+    }
+}
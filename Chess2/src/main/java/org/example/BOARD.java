@@ -9,7 +9,7 @@ public enum BOARD {
     /** Первая вертикаль (файл) доски */
     FIRST_FILE('a'),
     /** Последняя вертикаль (файл) доски */
-    LAST_FILE('j'),
+    LAST_FILE('h'),
     /** Первая горизонталь (ранг) доски */
     FIRST_RANK(1),
     /** Последняя горизонталь (ранг) доски */
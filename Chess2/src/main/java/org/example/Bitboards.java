@@ -0,0 +1,252 @@
+package org.example;
+
+
+import org.example.BOARD;
+import org.example.COLOUR;
+import org.example.ID;
+
+/**
+ * Вспомогательный класс для битового представления доски.
+ * Каждое поле доски соответствует одному биту 64-битного числа:
+ * индекс поля равен (файл - 'a') + 8 * (ранг - 1), то есть a1 = 0, h1 = 7, a8 = 56, h8 = 63.
+ */
+public class Bitboards {
+
+    /** Количество файлов (вертикалей) доски */
+    public static final int FILES = BOARD.LAST_FILE.getFileVal() - BOARD.FIRST_FILE.getFileVal() + 1;
+    /** Количество рангов (горизонталей) доски */
+    public static final int RANKS = BOARD.LAST_RANK.getRankVal() - BOARD.FIRST_RANK.getRankVal() + 1;
+    /** Количество полей доски */
+    public static final int SQUARES = FILES * RANKS;
+    /** Индекс несуществующего поля */
+    public static final int NO_SQUARE = -1;
+    /** Количество типов фигур */
+    public static final int TYPES = ID.values().length;
+
+    /** Все поля вертикали a */
+    public static final long FILE_A = 0x0101010101010101L;
+    /** Все поля первой горизонтали */
+    public static final long RANK_1 = 0xFFL;
+    /** Все светлые поля доски */
+    public static final long LIGHT_SQUARES = 0x55AA55AA55AA55AAL;
+    /** Все темные поля доски */
+    public static final long DARK_SQUARES = ~LIGHT_SQUARES;
+
+    /** Поля, которые атакует конь с каждого поля */
+    public static final long[] KNIGHT_ATTACKS = new long[SQUARES];
+    /** Поля, которые атакует король с каждого поля */
+    public static final long[] KING_ATTACKS = new long[SQUARES];
+    /** Поля, которые атакует пешка с каждого поля, по цветам (индекс COLOUR.ordinal()) */
+    public static final long[][] PAWN_ATTACKS = new long[2][SQUARES];
+
+    /** Направления лучей. Первые четыре увеличивают индекс поля, остальные уменьшают */
+    public static final int NORTH = 0;
+    public static final int EAST = 1;
+    public static final int NORTH_EAST = 2;
+    public static final int NORTH_WEST = 3;
+    public static final int SOUTH = 4;
+    public static final int WEST = 5;
+    public static final int SOUTH_WEST = 6;
+    public static final int SOUTH_EAST = 7;
+    /** Количество направлений лучей */
+    public static final int DIRECTIONS = 8;
+
+    /** Поля луча от каждого поля в каждом направлении до края доски, без самого поля */
+    public static final long[][] RAYS = new long[DIRECTIONS][SQUARES];
+
+    /** Смещения (файл, ранг) направлений по индексам NORTH..SOUTH_EAST */
+    private static final int[][] directionSteps = {{0, 1}, {1, 0}, {1, 1}, {-1, 1}, {0, -1}, {-1, 0}, {-1, -1}, {1, -1}};
+
+    private static final int[][] knightJumps = {{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}};
+    private static final int[][] kingSteps = {{0, 1}, {1, 1}, {1, 0}, {1, -1}, {0, -1}, {-1, -1}, {-1, 0}, {-1, 1}};
+
+    private static final ID[] types = ID.values();
+
+    static {
+        for (int square = 0; square < SQUARES; square++) {
+            KNIGHT_ATTACKS[square] = jumps(square, knightJumps);
+            KING_ATTACKS[square] = jumps(square, kingSteps);
+            PAWN_ATTACKS[COLOUR.W.ordinal()][square] = jumps(square, new int[][] {{-1, 1}, {1, 1}});
+            PAWN_ATTACKS[COLOUR.B.ordinal()][square] = jumps(square, new int[][] {{-1, -1}, {1, -1}});
+            for (int direction = 0; direction < DIRECTIONS; direction++) {
+                int[] step = directionSteps[direction];
+                for (int next = offset(square, step[0], step[1]); next != NO_SQUARE; next = offset(next, step[0], step[1]))
+                    RAYS[direction][square] |= bit(next);
+            }
+        }
+    }
+
+    /**
+     * Получает поля луча до первой занятой клетки включительно
+     * @param direction направление, от NORTH до SOUTH_EAST
+     * @param square поле, от которого строится луч
+     * @param occupancy занятые поля
+     * @return маска полей луча
+     */
+    public static long rayAttacks(int direction, int square, long occupancy) {
+        long ray = RAYS[direction][square];
+        long blockers = ray & occupancy;
+        if (blockers == 0)
+            return ray;
+        return ray ^ RAYS[direction][nearest(direction, blockers)];
+    }
+
+    /**
+     * Находит в маске поле луча, ближайшее к его началу
+     * @param direction направление луча
+     * @param mask непустая маска полей одного луча
+     * @return индекс ближайшего поля
+     */
+    public static int nearest(int direction, long mask) {
+        return direction < SOUTH ? Long.numberOfTrailingZeros(mask) : SQUARES - 1 - Long.numberOfLeadingZeros(mask);
+    }
+
+    /**
+     * Получает поля, которые бьет ладья с поля при заданной занятости доски
+     * @param square индекс поля
+     * @param occupancy занятые поля
+     * @return маска атакованных полей
+     */
+    public static long rookAttacks(int square, long occupancy) {
+        return rayAttacks(NORTH, square, occupancy) | rayAttacks(EAST, square, occupancy)
+                | rayAttacks(SOUTH, square, occupancy) | rayAttacks(WEST, square, occupancy);
+    }
+
+    /**
+     * Получает поля, которые бьет слон с поля при заданной занятости доски
+     * @param square индекс поля
+     * @param occupancy занятые поля
+     * @return маска атакованных полей
+     */
+    public static long bishopAttacks(int square, long occupancy) {
+        return rayAttacks(NORTH_EAST, square, occupancy) | rayAttacks(NORTH_WEST, square, occupancy)
+                | rayAttacks(SOUTH_WEST, square, occupancy) | rayAttacks(SOUTH_EAST, square, occupancy);
+    }
+
+    /**
+     * Собирает маску полей, достижимых с поля одним прыжком из списка смещений
+     * @param square исходное поле
+     * @param offsets смещения (файл, ранг)
+     * @return маска полей в пределах доски
+     */
+    private static long jumps(int square, int[][] offsets) {
+        long mask = 0L;
+        for (int[] offset : offsets) {
+            int target = offset(square, offset[0], offset[1]);
+            if (target != NO_SQUARE)
+                mask |= bit(target);
+        }
+        return mask;
+    }
+
+    /**
+     * Получает поле, смещенное относительно данного
+     * @param square исходное поле
+     * @param fileShift смещение по файлу
+     * @param rankShift смещение по рангу
+     * @return индекс поля или NO_SQUARE, если смещение выходит за доску
+     */
+    public static int offset(int square, int fileShift, int rankShift) {
+        int file = square % FILES + fileShift;
+        int rank = square / FILES + rankShift;
+        if (file < 0 || file >= FILES || rank < 0 || rank >= RANKS)
+            return NO_SQUARE;
+        return file + rank * FILES;
+    }
+
+    /**
+     * Получает индекс поля по файлу и рангу
+     * @param file файл (вертикаль)
+     * @param rank ранг (горизонталь)
+     * @return индекс поля или NO_SQUARE, если поле вне доски
+     */
+    public static int square(char file, int rank) {
+        int fileIndex = file - BOARD.FIRST_FILE.getFileVal();
+        int rankIndex = rank - BOARD.FIRST_RANK.getRankVal();
+        if (fileIndex < 0 || fileIndex >= FILES || rankIndex < 0 || rankIndex >= RANKS)
+            return NO_SQUARE;
+        return fileIndex + rankIndex * FILES;
+    }
+
+    /**
+     * Получает индекс поля для координаты
+     * @param coordinate координата
+     * @return индекс поля или NO_SQUARE, если координата вне доски
+     */
+    public static int square(Coordinate coordinate) {
+        return coordinate.getSquare();
+    }
+
+    /**
+     * Преобразует индекс поля в координату
+     * @param square индекс поля
+     * @return координата поля
+     */
+    public static Coordinate toCoordinate(int square) {
+        return Coordinate.of(square);
+    }
+
+    /**
+     * Получает файл (вертикаль) поля
+     * @param square индекс поля
+     * @return символ файла
+     */
+    public static char fileOf(int square) {
+        return (char) (BOARD.FIRST_FILE.getFileVal() + square % FILES);
+    }
+
+    /**
+     * Получает ранг (горизонталь) поля
+     * @param square индекс поля
+     * @return номер ранга
+     */
+    public static int rankOf(int square) {
+        return BOARD.FIRST_RANK.getRankVal() + square / FILES;
+    }
+
+    /**
+     * Получает битовую маску одного поля
+     * @param square индекс поля
+     * @return маска с единственным установленным битом
+     */
+    public static long bit(int square) {
+        return 1L << square;
+    }
+
+    /**
+     * Получает маску всей вертикали
+     * @param file файл (вертикаль)
+     * @return маска полей вертикали
+     */
+    public static long fileMask(char file) {
+        return FILE_A << (file - BOARD.FIRST_FILE.getFileVal());
+    }
+
+    /**
+     * Получает маску всей горизонтали
+     * @param rank ранг (горизонталь)
+     * @return маска полей горизонтали
+     */
+    public static long rankMask(int rank) {
+        return RANK_1 << (FILES * (rank - BOARD.FIRST_RANK.getRankVal()));
+    }
+
+    /**
+     * Получает индекс битовой доски для фигуры заданного цвета и типа
+     * @param colour цвет фигуры
+     * @param name тип фигуры
+     * @return индекс в массиве битовых досок
+     */
+    public static int index(COLOUR colour, ID name) {
+        return colour.ordinal() * TYPES + name.ordinal();
+    }
+
+    /**
+     * Получает тип фигуры по индексу битовой доски
+     * @param index индекс в массиве битовых досок
+     * @return тип фигуры
+     */
+    public static ID typeOf(int index) {
+        return types[index % TYPES];
+    }
+}
@@ -71,7 +71,7 @@ public class BoardPanel extends JPanel {
         for (int rank = dimension; rank >= firstRank; rank--) {
             for (int file = 1; file <= dimension; file++) {
                 char fileChar = (char) (charFile + file);
-                Coordinate tileCoord = new Coordinate(fileChar, rank);
+                Coordinate tileCoord = Coordinate.of(fileChar, rank);
                 board[rank - 1][file - 1] = createBoardButton(tileCoord, pieces);
                 board[rank - 1][file - 1].addActionListener(new BoardButtonListener());
                 boardPanel.add(board[rank - 1][file - 1]);
@@ -155,7 +155,7 @@ public class BoardPanel extends JPanel {
             for (char file = firstFile; file <= lastFile; file++) {
                 int processedRank = rank - firstRank;
                 int processedFile = file - firstFile;
-                Coordinate potentialCoord = new Coordinate(file, rank);
+                Coordinate potentialCoord = Coordinate.of(file, rank);
                 if (potentials.contains(potentialCoord))
                     board[processedRank][processedFile].setBackground(intermediate);
                 else
@@ -173,7 +173,7 @@ public class BoardPanel extends JPanel {
             for (char file = firstFile; file <= lastFile; file++) {
                 int processedRank = rank - firstRank;
                 int processedFile = file - firstFile;
-                Coordinate potentialCoord = new Coordinate(file, rank);
+                Coordinate potentialCoord = Coordinate.of(file, rank);
                 backgroundSetter(potentialCoord, board[processedRank][processedFile]);
             }
         }
@@ -190,7 +190,7 @@ public class BoardPanel extends JPanel {
             for (char file = firstFile; file <= lastFile; file++) {
                 int processedRank = rank - firstRank;
                 int processedFile = file - firstFile;
-                Coordinate potentialCoord = new Coordinate(file, rank);
+                Coordinate potentialCoord = Coordinate.of(file, rank);
                 backgroundSetter(potentialCoord, board[processedRank][processedFile]);
 
                 Piece updatePiece = pieces.getPieces().get(potentialCoord);
@@ -350,7 +350,7 @@ public class BoardPanel extends JPanel {
         private Coordinate toCoordinate(int row, int column) {
             int rank = row + firstRank;
             char file = (char) (column + firstFile);
-            return new Coordinate(file, rank);
+            return Coordinate.of(file, rank);
         }
 
         /**
@@ -3,6 +3,7 @@ package org.example;
 
 
 import org.example.COLOUR;
+import org.example.ID;
 import org.example.Bishop;
 import org.example.Knight;
 import org.example.Pawn;
@@ -36,68 +37,92 @@ public class Boards {
 
         // Черные пешки (от a до h)
         for (char file = 'a'; file <= 'h'; file++) {
-            pieces.put(new Coordinate(file, blackPawnRank),
-                    new Pawn(COLOUR.B, new Coordinate(file, blackPawnRank)));
+            pieces.put(Coordinate.of(file, blackPawnRank),
+                    new Pawn(COLOUR.B, Coordinate.of(file, blackPawnRank)));
         }
 
         // Белые пешки (от a до h)
         for (char file = 'a'; file <= 'h'; file++) {
-            pieces.put(new Coordinate(file, whitePawnRank),
-                    new Pawn(COLOUR.W, new Coordinate(file, whitePawnRank)));
+            pieces.put(Coordinate.of(file, whitePawnRank),
+                    new Pawn(COLOUR.W, Coordinate.of(file, whitePawnRank)));
         }
 
         // Черные ладьи
-        pieces.put(new Coordinate('a', blackPieceRank),
-                new Rook(COLOUR.B, new Coordinate('a', blackPieceRank)));
-        pieces.put(new Coordinate('h', blackPieceRank),
-                new Rook(COLOUR.B, new Coordinate('h', blackPieceRank)));
+        pieces.put(Coordinate.of('a', blackPieceRank),
+                new Rook(COLOUR.B, Coordinate.of('a', blackPieceRank)));
+        pieces.put(Coordinate.of('h', blackPieceRank),
+                new Rook(COLOUR.B, Coordinate.of('h', blackPieceRank)));
 
         // Черные кони
-        pieces.put(new Coordinate('b', blackPieceRank),
-                new Knight(COLOUR.B, new Coordinate('b', blackPieceRank)));
-        pieces.put(new Coordinate('g', blackPieceRank),
-                new Knight(COLOUR.B, new Coordinate('g', blackPieceRank)));
+        pieces.put(Coordinate.of('b', blackPieceRank),
+                new Knight(COLOUR.B, Coordinate.of('b', blackPieceRank)));
+        pieces.put(Coordinate.of('g', blackPieceRank),
+                new Knight(COLOUR.B, Coordinate.of('g', blackPieceRank)));
 
         // Черные слоны
-        pieces.put(new Coordinate('c', blackPieceRank),
-                new Bishop(COLOUR.B, new Coordinate('c', blackPieceRank)));
-        pieces.put(new Coordinate('f', blackPieceRank),
-                new Bishop(COLOUR.B, new Coordinate('f', blackPieceRank)));
+        pieces.put(Coordinate.of('c', blackPieceRank),
+                new Bishop(COLOUR.B, Coordinate.of('c', blackPieceRank)));
+        pieces.put(Coordinate.of('f', blackPieceRank),
+                new Bishop(COLOUR.B, Coordinate.of('f', blackPieceRank)));
 
         // Черный ферзь
-        pieces.put(new Coordinate('d', blackPieceRank),
-                new Queen(COLOUR.B, new Coordinate('d', blackPieceRank)));
+        pieces.put(Coordinate.of('d', blackPieceRank),
+                new Queen(COLOUR.B, Coordinate.of('d', blackPieceRank)));
 
         // Черный король
-        pieces.put(new Coordinate('e', blackPieceRank),
-                new King(COLOUR.B, new Coordinate('e', blackPieceRank)));
+        pieces.put(Coordinate.of('e', blackPieceRank),
+                new King(COLOUR.B, Coordinate.of('e', blackPieceRank)));
 
         // Белые ладьи
-        pieces.put(new Coordinate('a', whitePieceRank),
-                new Rook(COLOUR.W, new Coordinate('a', whitePieceRank)));
-        pieces.put(new Coordinate('h', whitePieceRank),
-                new Rook(COLOUR.W, new Coordinate('h', whitePieceRank)));
+        pieces.put(Coordinate.of('a', whitePieceRank),
+                new Rook(COLOUR.W, Coordinate.of('a', whitePieceRank)));
+        pieces.put(Coordinate.of('h', whitePieceRank),
+                new Rook(COLOUR.W, Coordinate.of('h', whitePieceRank)));
 
         // Белые кони
-        pieces.put(new Coordinate('b', whitePieceRank),
-                new Knight(COLOUR.W, new Coordinate('b', whitePieceRank)));
-        pieces.put(new Coordinate('g', whitePieceRank),
-                new Knight(COLOUR.W, new Coordinate('g', whitePieceRank)));
+        pieces.put(Coordinate.of('b', whitePieceRank),
+                new Knight(COLOUR.W, Coordinate.of('b', whitePieceRank)));
+        pieces.put(Coordinate.of('g', whitePieceRank),
+                new Knight(COLOUR.W, Coordinate.of('g', whitePieceRank)));
 
         // Белые слоны
-        pieces.put(new Coordinate('c', whitePieceRank),
-                new Bishop(COLOUR.W, new Coordinate('c', whitePieceRank)));
-        pieces.put(new Coordinate('f', whitePieceRank),
-                new Bishop(COLOUR.W, new Coordinate('f', whitePieceRank)));
+        pieces.put(Coordinate.of('c', whitePieceRank),
+                new Bishop(COLOUR.W, Coordinate.of('c', whitePieceRank)));
+        pieces.put(Coordinate.of('f', whitePieceRank),
+                new Bishop(COLOUR.W, Coordinate.of('f', whitePieceRank)));
 
         // Белый ферзь
-        pieces.put(new Coordinate('d', whitePieceRank),
-                new Queen(COLOUR.W, new Coordinate('d', whitePieceRank)));
+        pieces.put(Coordinate.of('d', whitePieceRank),
+                new Queen(COLOUR.W, Coordinate.of('d', whitePieceRank)));
 
         // Белый король
-        pieces.put(new Coordinate('e', whitePieceRank),
-                new King(COLOUR.W, new Coordinate('e', whitePieceRank)));
+        pieces.put(Coordinate.of('e', whitePieceRank),
+                new King(COLOUR.W, Coordinate.of('e', whitePieceRank)));
 
         return pieces;
     }
+
+    /**
+     * Создает фигуру заданного типа и цвета
+     * @param name тип фигуры
+     * @param colour цвет фигуры
+     * @param coordinate исходная координата фигуры
+     * @return новая фигура
+     */
+    public static Piece createPiece(ID name, COLOUR colour, Coordinate coordinate) {
+        switch (name) {
+            case KING:
+                return new King(colour, coordinate);
+            case QUEEN:
+                return new Queen(colour, coordinate);
+            case ROOK:
+                return new Rook(colour, coordinate);
+            case BISHOP:
+                return new Bishop(colour, coordinate);
+            case KNIGHT:
+                return new Knight(colour, coordinate);
+            default:
+                return new Pawn(colour, coordinate);
+        }
+    }
 }
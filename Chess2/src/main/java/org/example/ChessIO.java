@@ -6,9 +6,9 @@ import org.example.COLOUR;
 import org.example.ID;
 import org.example.Coordinate;
 import org.example.Pieces;
-import org.example.King;
-import org.example.Pawn;
 import org.example.Piece;
+import org.example.engine.MoveGenerator;
+import org.example.engine.MoveList;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
@@ -17,88 +17,203 @@ import java.util.Objects;
 
 /**
  * Класс для работы с вводом-выводом шахматных данных
- * Содержит методы для форматирования ходов и сохранения игры
+ * Содержит методы для форматирования и разбора ходов и сохранения игры
  */
 public class ChessIO {
 
     private static final String errorSave = "$$$";
+    /** Обозначения фигур в SAN по ID.ordinal(), пешка не обозначается */
+    private static final String sanSymbols = "KQRBN";
+    private static final ID[] types = ID.values();
 
     /**
-     * Форматирует ход в строковое представление в шахматной нотации
-     * @param pieces текущее состояние доски
-     * @param coordinate координата назначения
-     * @param piece фигура, делающая ход
-     * @return строковое представление хода
+     * Форматирует ход в краткой алгебраической нотации (SAN) по позиции до хода.
+     * Для уточнения исходного поля ходы генерируются только для фигур того же типа,
+     * которые бьют поле назначения; их вычисленные ходы берутся из кэша позиции.
+     * Шах и мат определяются один раз после пробного хода, который сразу отменяется
+     * @param pieces позиция до хода
+     * @param move упакованный ход с флагами из генератора
+     * @param moves список для ходов фигур-кандидатов, очищается
+     * @return запись хода, например "Nbd7", "exd6", "e8=Q+" или "O-O"
      */
-    public static String moveString (Pieces pieces, Coordinate coordinate, Piece piece) {
+    public static String moveString(Pieces pieces, int move, MoveList moves) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        Piece piece = pieces.getPiece(from);
+        StringBuilder str = new StringBuilder(8);
 
-        boolean isCastle = false;
+        if ((PackedMove.flags(move) & PackedMove.CASTLE) != 0)
+            str.append(to > from ? "O-O" : "O-O-O");
+        else {
+            if (piece.getName() == ID.PAWN) {
+                if (PackedMove.isCapture(move))
+                    str.append(Bitboards.fileOf(from)).append('x');
+            }
+            else {
+                str.append(piece.getName().toString());
+                appendDisambiguation(str, pieces, piece, move, moves);
+                if (PackedMove.isCapture(move))
+                    str.append('x');
+            }
+            str.append(Bitboards.fileOf(to)).append(Bitboards.rankOf(to));
+
+            ID promotion = PackedMove.promotion(move);
+            if (promotion != null)
+                str.append('=').append(promotion.toString());
+        }
 
-        StringBuilder str = new StringBuilder();
-        Pieces previousBoard = new Pieces(pieces.getPreviousPieces());
-        Coordinate previousCoordinate = previousBoard.findPiece(piece);
-        Piece previousPiece = previousBoard.getPiece(previousCoordinate);
+        MoveUndo undo = new MoveUndo();
+        MoveGenerator.make(pieces, move, undo);
+        COLOUR opponent = pieces.getSideToMove();
+        if (pieces.isCheck(opponent))
+            str.append(pieces.hasPotentialMoves(opponent) ? '+' : '#');
+        pieces.unmake(undo);
 
-        if (piece.getName() != ID.KING) {
-            str.append(piece.getName().toString());
+        return str.toString();
+    }
+
+    /**
+     * Добавляет к записи хода вертикаль, горизонталь или поле фигуры,
+     * если на то же поле может пойти другая фигура того же типа
+     * @param str запись хода
+     * @param pieces позиция до хода
+     * @param piece фигура, делающая ход
+     * @param move упакованный ход
+     * @param moves список для ходов других фигур, очищается
+     */
+    private static void appendDisambiguation(StringBuilder str, Pieces pieces, Piece piece, int move, MoveList moves) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        long others = pieces.getBitboard(piece.getColour(), piece.getName()) & ~Bitboards.bit(from);
+
+        moves.clear();
+        while (others != 0) {
+            int square = Long.numberOfTrailingZeros(others);
+            others &= others - 1;
+            if ((pieces.getAttacks(square, piece.getName(), piece.getColour()) & Bitboards.bit(to)) != 0)
+                MoveGenerator.generateFrom(pieces, square, moves);
         }
-        else {
-            King king = (King) piece;
-            King previousKing = (King) previousPiece;
 
-            if (coordinate.equals(king.getCastleCoordKingQ()) && previousKing.canCastleQueen(previousBoard)) {
-                str.append("O-O-O");
-                isCastle = true;
-            }
-            else if (coordinate.equals(king.getCastleCoordKingK()) && previousKing.canCastleKing(previousBoard)) {
-                str.append("O-O");
-                isCastle = true;
-            }
-            else
-                str.append(piece.getName().toString());
+        boolean ambiguous = false;
+        boolean sameFile = false;
+        boolean sameRank = false;
+        for (int i = 0; i < moves.size(); i++) {
+            int other = moves.get(i);
+            if (PackedMove.to(other) != to)
+                continue;
+            ambiguous = true;
+            sameFile |= Bitboards.fileOf(PackedMove.from(other)) == Bitboards.fileOf(from);
+            sameRank |= Bitboards.rankOf(PackedMove.from(other)) == Bitboards.rankOf(from);
         }
 
-        str.append(removeAmbiguous(previousBoard, coordinate, previousPiece));
+        if (!ambiguous)
+            return;
+        if (!sameFile)
+            str.append(Bitboards.fileOf(from));
+        else if (!sameRank)
+            str.append(Bitboards.rankOf(from));
+        else
+            str.append(Bitboards.fileOf(from)).append(Bitboards.rankOf(from));
+    }
+
+    /**
+     * Находит допустимый ход позиции по записи в краткой алгебраической нотации (SAN),
+     * например "Nbd7", "exd6", "e8=Q+", "O-O-O". Знаки шаха и оценки хода (!, ?) не учитываются.
+     * Допускаются рокировка через нули и превращение без знака "=".
+     * Допустимые ходы генерируются только для фигур, которые по записи могут попасть на поле назначения
+     * @param pieces позиция до хода
+     * @param san запись хода
+     * @param moves список для ходов фигур-кандидатов, очищается
+     * @return упакованный ход с флагами
+     * @throws IllegalArgumentException если ход недопустим или запись неоднозначна
+     */
+    public static int parseSan(Pieces pieces, CharSequence san, MoveList moves) {
+        int end = san.length();
+        while (end > 0 && "+#!?".indexOf(san.charAt(end - 1)) >= 0)
+            end--;
+        if (end < 2)
+            throw new IllegalArgumentException("Неверная запись хода " + san + ".");
 
-        if (pieces.getIsCapture()) {
-            if (piece.getName() == ID.PAWN) {
-                assert piece instanceof Pawn;
-                Pawn pawn = (Pawn) piece;
-                str.append(pawn.getPreviousCoordinate().getFile()).append("x");
+        COLOUR side = pieces.getSideToMove();
+        moves.clear();
+
+        if (san.charAt(0) == 'O' || san.charAt(0) == '0') {
+            long king = pieces.getBitboard(side, ID.KING);
+            if (king != 0)
+                MoveGenerator.generateFrom(pieces, Long.numberOfTrailingZeros(king), moves);
+            boolean queenside = end >= 5;
+            for (int i = 0; i < moves.size(); i++) {
+                int move = moves.get(i);
+                if ((PackedMove.flags(move) & PackedMove.CASTLE) != 0
+                        && (PackedMove.to(move) < PackedMove.from(move)) == queenside)
+                    return move;
             }
-            else
-                str.append("x");
+            throw new IllegalArgumentException("Рокировка " + san + " недопустима в позиции.");
         }
 
-        if (!isCastle) {
-            str.append(coordinate.toString());
+        int start = 0;
+        ID name = ID.PAWN;
+        int symbol = sanSymbols.indexOf(san.charAt(0));
+        if (symbol >= 0) {
+            name = types[symbol];
+            start = 1;
         }
 
-        if (piece.getName() == ID.PAWN) {
-            Pawn pawn = (Pawn) piece;
-            if (pawn.canPromoteBlack(coordinate) || pawn.canPromoteWhite(coordinate))
-                str.append("=").append(pawn.getPromotedPiece().getName().toString());
+        ID promotion = null;
+        if (name == ID.PAWN) {
+            int promotionSymbol = sanSymbols.indexOf(san.charAt(end - 1));
+            if (promotionSymbol > 0) {
+                promotion = types[promotionSymbol];
+                end--;
+                if (end > 0 && san.charAt(end - 1) == '=')
+                    end--;
+            }
         }
+        if (end - start < 2)
+            throw new IllegalArgumentException("Неверная запись хода " + san + ".");
 
-        if (pieces.isMate(COLOUR.not(piece.getColour())))
-            str.append("#");
-        else if (pieces.isCheck(COLOUR.not(piece.getColour())))
-            str.append("+");
+        int to = Bitboards.square(san.charAt(end - 2), san.charAt(end - 1) - '0');
+        if (to == Bitboards.NO_SQUARE)
+            throw new IllegalArgumentException("Неверное поле назначения в записи хода " + san + ".");
 
-        return str.toString();
-    }
+        char fromFile = 0;
+        int fromRank = 0;
+        for (int i = start; i < end - 2; i++) {
+            char c = san.charAt(i);
+            if (c >= BOARD.FIRST_FILE.getFileVal() && c <= BOARD.LAST_FILE.getFileVal())
+                fromFile = c;
+            else if (c >= '1' && c <= '8')
+                fromRank = c - '0';
+            else if (c != 'x' && c != '-')
+                throw new IllegalArgumentException("Неверная запись хода " + san + ".");
+        }
 
-    public static String removeAmbiguous (Pieces pieces, Coordinate coordinate, Piece piece) {
-        if (pieces.pieceToSameCoordinate(coordinate, piece)) {
-            if (pieces.pieceInSameRank(piece))
-                return piece.getFile() + "";
-            else if (pieces.pieceInSameFile(piece))
-                return piece.getRank() + "";
-            else
-                return "";
+        long candidates = pieces.getBitboard(side, name);
+        if (fromFile != 0)
+            candidates &= Bitboards.fileMask(fromFile);
+        else if (name == ID.PAWN)
+            candidates &= Bitboards.fileMask(Bitboards.fileOf(to));
+        if (fromRank != 0)
+            candidates &= Bitboards.rankMask(fromRank);
+        while (candidates != 0) {
+            int from = Long.numberOfTrailingZeros(candidates);
+            candidates &= candidates - 1;
+            if (name == ID.PAWN || (pieces.getAttacks(from, name, side) & Bitboards.bit(to)) != 0)
+                MoveGenerator.generateFrom(pieces, from, moves);
         }
-        else
-            return "";
+
+        int found = -1;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            if (PackedMove.to(move) != to || PackedMove.promotion(move) != promotion)
+                continue;
+            if (found != -1)
+                throw new IllegalArgumentException("Запись хода " + san + " неоднозначна.");
+            found = move;
+        }
+        if (found == -1)
+            throw new IllegalArgumentException("Ход " + san + " недопустим в позиции.");
+        return found;
     }
 
     /**
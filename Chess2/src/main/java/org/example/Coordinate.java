@@ -2,29 +2,48 @@ package org.example;
 
 
 import org.example.BOARD;
-import java.util.Objects;
 
 /**
- * Класс для представления координат на шахматной доске
+ * Класс для представления координат на шахматной доске.
+ * Координата неизменяема. Все поля доски заранее созданы в статической таблице,
+ * и Coordinate.of возвращает готовый объект вместо нового, поэтому обход лучей
+ * и генерация ходов не создают координат в пределах доски.
  */
 public class Coordinate {
 
+    private static final char firstFile = BOARD.FIRST_FILE.getFileVal();
+    private static final int firstRank = BOARD.FIRST_RANK.getRankVal();
+    private static final int files = BOARD.LAST_FILE.getFileVal() - firstFile + 1;
+    private static final int ranks = BOARD.LAST_RANK.getRankVal() - firstRank + 1;
+    private static final Coordinate[] squares = new Coordinate[files * ranks];
+
     /** Файл (вертикаль) координаты */
-    public char file;
+    public final char file;
     /** Ранг (горизонталь) координаты */
-    public int rank;
+    public final int rank;
+    /** Индекс поля, как в Bitboards, или Bitboards.NO_SQUARE для координаты вне доски */
+    private final int square;
+    private final int hash;
+
+    static {
+        for (int i = 0; i < squares.length; i++)
+            squares[i] = new Coordinate((char) (firstFile + i % files), firstRank + i / files);
+    }
+
     /** Пустая координата */
     public static Coordinate emptyCoordinate = new Coordinate((char) 0,0);
 
     /**
      * Конструктор координаты
-     * @param file файл (вертикаль) - символ от 'a' до 'j'
-     * @param rank ранг (горизонталь) - число от 1 до 10
+     * @param file файл (вертикаль) - символ от 'a' до 'h'
+     * @param rank ранг (горизонталь) - число от 1 до 8
      */
     public Coordinate (char file, int rank) {
 
         this.file = Character.toLowerCase(file);
         this.rank = rank;
+        this.square = Bitboards.square(this.file, rank);
+        this.hash = 31 * this.file + rank;
     }
 
     /**
@@ -34,10 +53,12 @@ public class Coordinate {
     public Coordinate (Coordinate original) {
         file = original.file;
         rank = original.rank;
+        square = original.square;
+        hash = original.hash;
     }
 
     /**
-     * Конструктор координаты из строки (например, "a1", "j10")
+     * Конструктор координаты из строки (например, "a1", "h8")
      * @param coordinate строковое представление координаты
      */
     public Coordinate (String coordinate) {
@@ -51,14 +72,44 @@ public class Coordinate {
             file = 0;
             rank = 0;
         }
+        square = Bitboards.square(file, rank);
+        hash = 31 * file + rank;
     }
 
     /**
      * Конструктор пустой координаты
      */
     public Coordinate() {
-        file = 0;
-        rank = 0;
+        this((char) 0, 0);
+    }
+
+    /**
+     * Получает координату поля из таблицы. Для координаты вне доски создается новый объект
+     * @param file файл (вертикаль) - символ от 'a' до 'h'
+     * @param rank ранг (горизонталь) - число от 1 до 8
+     * @return координата
+     */
+    public static Coordinate of(char file, int rank) {
+        int square = Bitboards.square(Character.toLowerCase(file), rank);
+        return square == Bitboards.NO_SQUARE ? new Coordinate(file, rank) : squares[square];
+    }
+
+    /**
+     * Получает координату поля по индексу
+     * @param square индекс поля, как в Bitboards
+     * @return координата поля
+     * @throws ArrayIndexOutOfBoundsException если индекс вне доски
+     */
+    public static Coordinate of(int square) {
+        return squares[square];
+    }
+
+    /**
+     * Получает индекс поля координаты
+     * @return индекс поля, как в Bitboards, или Bitboards.NO_SQUARE для координаты вне доски
+     */
+    public int getSquare() {
+        return square;
     }
 
     /**
@@ -83,12 +134,7 @@ public class Coordinate {
      * @return true если координата находится на доске
      */
     public static boolean inBoard (Coordinate coord) {
-        char coordFile = coord.getFile();
-        int coordRank = coord.getRank();
-        return (coordFile >= BOARD.FIRST_FILE.getFileVal()
-                && coordFile <= BOARD.LAST_FILE.getFileVal()
-                && coordRank >= BOARD.FIRST_RANK.getRankVal()
-                && coordRank <= BOARD.LAST_RANK.getRankVal());
+        return coord.square != Bitboards.NO_SQUARE;
     }
 
     @Override
@@ -107,7 +153,7 @@ public class Coordinate {
 
     @Override
     public int hashCode() {
-        return Objects.hash(file, rank);
+        return hash;
     }
 
 
@@ -0,0 +1,395 @@
+package org.example;
+
+import org.example.engine.MoveGenerator;
+import org.example.engine.MoveList;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Компактный двоичный архив партий с доступом по номеру партии.
+ * Файл архива начинается с заголовка (сигнатура и версия), за ним подряд идут записи партий:
+ * длина записи, теги (имя и значение в UTF-8), число полуходов и по одному байту на полуход -
+ * номер хода в списке допустимых ходов MoveGenerator.generate для позиции перед ходом.
+ * Рядом лежит файл индекса с расширением .idx: смещение каждой записи как long, поэтому
+ * партия читается по номеру за два чтения. Оба файла только дописываются через FileChannel.
+ * Если запись была прервана, при открытии индекс дополняется по файлу архива,
+ * а недописанная последняя запись отбрасывается.
+ * Объект не потокобезопасен.
+ */
+public class GameArchive implements Closeable {
+
+    private static final byte[] magic = {'C', 'H', 'E', 'S', 'S', 'A', 'R', 'C'};
+    private static final int version = 1;
+    private static final int headerSize = magic.length + Integer.BYTES;
+    private static final int offsetSize = Long.BYTES;
+    private static final int maxShort = 0xFFFF;
+    private static final String fenTag = "FEN";
+    private static final String startFen = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private final FileChannel data;
+    private final FileChannel index;
+    private final MoveList moves = new MoveList();
+    private final ByteBuffer lengthBuffer = ByteBuffer.allocate(Integer.BYTES);
+    private final ByteBuffer offsetBuffer = ByteBuffer.allocate(offsetSize);
+    private long games;
+
+    /**
+     * Открывает архив или создает новый
+     * @param file путь к файлу архива; индекс хранится в файле с добавленным расширением .idx
+     * @throws IOException при ошибке чтения или если файл не является архивом партий
+     */
+    public GameArchive(Path file) throws IOException {
+        Objects.requireNonNull(file, "Путь к архиву не может быть null.");
+        data = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        index = FileChannel.open(file.resolveSibling(file.getFileName() + ".idx"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (data.size() == 0)
+                writeHeader();
+            else
+                checkHeader();
+            recover();
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Дописывает партию в конец архива
+     * @param tags теги партии; если партия началась не с начальной позиции и тега FEN нет, он добавляется
+     * @param game партия с историей ходов
+     * @return номер записанной партии, начиная с 0
+     * @throws IOException при ошибке записи
+     * @throws IllegalArgumentException если тег или партия не помещаются в формат записи
+     */
+    public long append(Map<String, String> tags, Pieces game) throws IOException {
+        Objects.requireNonNull(tags, "Теги не могут быть null.");
+        Objects.requireNonNull(game, "Партия не может быть null.");
+
+        Pieces position = game.getPositionAt(0);
+        LinkedHashMap<String, String> allTags = new LinkedHashMap<>(tags);
+        String fen = position.toFen();
+        if (!allTags.containsKey(fenTag) && !fen.equals(startFen))
+            allTags.put(fenTag, fen);
+        if (allTags.size() > maxShort)
+            throw new IllegalArgumentException("У партии слишком много тегов.");
+
+        byte[][] encodedTags = new byte[allTags.size() * 2][];
+        int length = Short.BYTES + Integer.BYTES + game.getPlyCount();
+        int i = 0;
+        for (Map.Entry<String, String> tag : allTags.entrySet()) {
+            encodedTags[i] = encodeTag(tag.getKey());
+            encodedTags[i + 1] = encodeTag(tag.getValue());
+            length += 2 * Short.BYTES + encodedTags[i].length + encodedTags[i + 1].length;
+            i += 2;
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + length);
+        record.putInt(length);
+        record.putShort((short) allTags.size());
+        for (byte[] encoded : encodedTags) {
+            record.putShort((short) encoded.length);
+            record.put(encoded);
+        }
+        record.putInt(game.getPlyCount());
+        for (int ply = 0; ply < game.getPlyCount(); ply++) {
+            int move = findMove(position, game.getHistoryMove(ply));
+            record.put((byte) move);
+            position.playMove(moves.get(move));
+        }
+        record.flip();
+
+        long offset = data.size();
+        writeFully(data, record, offset);
+        offsetBuffer.clear();
+        offsetBuffer.putLong(offset).flip();
+        writeFully(index, offsetBuffer, games * offsetSize);
+        return games++;
+    }
+
+    /**
+     * Получает число партий в архиве
+     * @return число партий
+     */
+    public long size() {
+        return games;
+    }
+
+    /**
+     * Читает теги партии
+     * @param id номер партии, начиная с 0
+     * @return теги в порядке записи
+     * @throws IOException при ошибке чтения
+     * @throws IndexOutOfBoundsException если партии с таким номером нет
+     */
+    public Map<String, String> readTags(long id) throws IOException {
+        return readTags(readRecord(id));
+    }
+
+    /**
+     * Читает партию и разыгрывает ее ходы
+     * @param id номер партии, начиная с 0
+     * @return позиция после последнего хода с историей партии
+     * @throws IOException при ошибке чтения или если запись повреждена
+     * @throws IndexOutOfBoundsException если партии с таким номером нет
+     */
+    public Pieces readGame(long id) throws IOException {
+        ByteBuffer record = readRecord(id);
+        String fen = readTags(record).get(fenTag);
+        Pieces game = fen == null ? new Pieces() : new Pieces(fen);
+
+        int plies = record.getInt();
+        if (plies < 0 || plies > record.remaining())
+            throw new IOException("Запись партии " + id + " повреждена.");
+        for (int ply = 0; ply < plies; ply++) {
+            int move = record.get() & 0xFF;
+            if (move >= MoveGenerator.generate(game, moves))
+                throw new IOException("Запись партии " + id + " повреждена: недопустимый ход " + (ply + 1) + ".");
+            game.playMove(moves.get(move));
+        }
+        return game;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            data.close();
+        } finally {
+            index.close();
+        }
+    }
+
+    /**
+     * Находит номер хода партии в списке допустимых ходов позиции
+     * @param position позиция перед ходом
+     * @param move ход из истории партии
+     * @return номер хода в списке moves
+     * @throws IllegalArgumentException если ход недопустим в позиции
+     */
+    private int findMove(Pieces position, int move) {
+        int count = MoveGenerator.generate(position, moves);
+        for (int i = 0; i < count; i++) {
+            int candidate = moves.get(i);
+            if (PackedMove.from(candidate) == PackedMove.from(move) && PackedMove.to(candidate) == PackedMove.to(move)
+                    && PackedMove.promotion(candidate) == PackedMove.promotion(move))
+                return i;
+        }
+        throw new IllegalArgumentException("Ход " + PackedMove.toString(move) + " недопустим в позиции " + position.toFen() + ".");
+    }
+
+    /**
+     * Кодирует имя или значение тега
+     * @param text текст тега
+     * @return байты UTF-8
+     * @throws IllegalArgumentException если текст длиннее 65535 байт
+     */
+    private static byte[] encodeTag(String text) {
+        byte[] encoded = text.getBytes(StandardCharsets.UTF_8);
+        if (encoded.length > maxShort)
+            throw new IllegalArgumentException("Тег длиннее " + maxShort + " байт.");
+        return encoded;
+    }
+
+    /**
+     * Читает теги из начала записи, позиция буфера переходит к числу полуходов
+     * @param record тело записи
+     * @return теги в порядке записи
+     */
+    private static Map<String, String> readTags(ByteBuffer record) {
+        int count = record.getShort() & maxShort;
+        LinkedHashMap<String, String> tags = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            String name = readText(record);
+            tags.put(name, readText(record));
+        }
+        return tags;
+    }
+
+    /**
+     * Читает строку с длиной в начале
+     * @param record тело записи
+     * @return строка
+     */
+    private static String readText(ByteBuffer record) {
+        int length = record.getShort() & maxShort;
+        String text = new String(record.array(), record.arrayOffset() + record.position(), length, StandardCharsets.UTF_8);
+        record.position(record.position() + length);
+        return text;
+    }
+
+    /**
+     * Читает тело записи партии по индексу
+     * @param id номер партии
+     * @return буфер с телом записи без длины
+     * @throws IOException при ошибке чтения
+     */
+    private ByteBuffer readRecord(long id) throws IOException {
+        if (id < 0 || id >= games)
+            throw new IndexOutOfBoundsException("В архиве нет партии " + id + ".");
+
+        offsetBuffer.clear();
+        readFully(index, offsetBuffer, id * offsetSize);
+        long offset = offsetBuffer.flip().getLong();
+
+        ByteBuffer record = ByteBuffer.allocate(readLength(offset));
+        readFully(data, record, offset + Integer.BYTES);
+        return record.flip();
+    }
+
+    /**
+     * Читает длину записи
+     * @param offset смещение записи
+     * @return длина тела записи
+     * @throws IOException при ошибке чтения
+     */
+    private int readLength(long offset) throws IOException {
+        lengthBuffer.clear();
+        readFully(data, lengthBuffer, offset);
+        return lengthBuffer.flip().getInt();
+    }
+
+    /**
+     * Записывает заголовок нового архива
+     * @throws IOException при ошибке записи
+     */
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(headerSize);
+        header.put(magic).putInt(version).flip();
+        writeFully(data, header, 0);
+        index.truncate(0);
+    }
+
+    /**
+     * Проверяет заголовок существующего архива
+     * @throws IOException если файл не является архивом партий этой версии
+     */
+    private void checkHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(headerSize);
+        if (data.size() < headerSize)
+            throw new IOException("Файл не является архивом партий.");
+        readFully(data, header, 0);
+        header.flip();
+        for (byte b : magic) {
+            if (header.get() != b)
+                throw new IOException("Файл не является архивом партий.");
+        }
+        int fileVersion = header.getInt();
+        if (fileVersion != version)
+            throw new IOException("Неподдерживаемая версия архива " + fileVersion + ".");
+    }
+
+    /**
+     * Сверяет индекс с файлом архива: дополняет индекс записями, которые в него не попали,
+     * и отбрасывает недописанную последнюю запись архива
+     * @throws IOException при ошибке чтения или записи
+     */
+    private void recover() throws IOException {
+        games = index.size() / offsetSize;
+        index.truncate(games * offsetSize);
+
+        long offset = headerSize;
+        if (games > 0) {
+            offsetBuffer.clear();
+            readFully(index, offsetBuffer, (games - 1) * offsetSize);
+            long last = offsetBuffer.flip().getLong();
+            offset = last + Integer.BYTES + readLength(last);
+        }
+
+        long size = data.size();
+        while (offset + Integer.BYTES <= size) {
+            int length = readLength(offset);
+            if (length < 0 || offset + Integer.BYTES + length > size)
+                break;
+            offsetBuffer.clear();
+            offsetBuffer.putLong(offset).flip();
+            writeFully(index, offsetBuffer, games * offsetSize);
+            games++;
+            offset += Integer.BYTES + length;
+        }
+        if (offset < size)
+            data.truncate(offset);
+    }
+
+    /**
+     * Записывает буфер целиком с указанного смещения
+     * @param channel канал файла
+     * @param buffer данные
+     * @param position смещение в файле
+     * @throws IOException при ошибке записи
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining())
+            position += channel.write(buffer, position);
+    }
+
+    /**
+     * Читает буфер целиком с указанного смещения
+     * @param channel канал файла
+     * @param buffer буфер для данных
+     * @param position смещение в файле
+     * @throws IOException при ошибке чтения или если файл закончился раньше
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0)
+                throw new EOFException("Архив партий закончился раньше записи.");
+            position += read;
+        }
+    }
+
+    /**
+     * Дописывает партии из файла PGN в архив или печатает партию архива.
+     * Запуск: java org.example.GameArchive архив файл.pgn - импорт,
+     * java org.example.GameArchive архив номер - вывод тегов и позиции партии
+     * @param args путь к архиву и файл PGN или номер партии
+     * @throws IOException при ошибке чтения или записи
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Укажите архив и файл PGN или номер партии.");
+            return;
+        }
+
+        try (GameArchive archive = new GameArchive(Paths.get(args[0]))) {
+            if (args[1].chars().allMatch(Character::isDigit)) {
+                long id = Long.parseLong(args[1]);
+                System.out.println(archive.readTags(id));
+                Pieces game = archive.readGame(id);
+                System.out.println(game.getPlyCount() + " полуходов, " + game.toFen());
+                return;
+            }
+
+            long start = System.nanoTime();
+            long before = archive.size();
+            long errors = 0;
+            try (PgnReader pgn = new PgnReader(Files.newBufferedReader(Paths.get(args[1]), StandardCharsets.UTF_8))) {
+                while (pgn.nextGame()) {
+                    try {
+                        Pieces game = pgn.replayGame();
+                        archive.append(pgn.getTags(), game);
+                    } catch (IllegalArgumentException e) {
+                        errors++;
+                        System.err.println(e.getMessage());
+                    }
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Добавлено партий %d, ошибок %d, всего в архиве %d, размер %d байт, время %.3f с%n",
+                    archive.size() - before, errors, archive.size(), archive.data.size(), seconds);
+        }
+    }
+}
@@ -12,6 +12,17 @@ import org.example.Pawn;
 import org.example.Piece;
 import org.example.King;
 import org.example.Rook;
+import org.example.Bitboards;
+import org.example.Boards;
+import org.example.PackedMove;
+import org.example.engine.MoveGenerator;
+import org.example.engine.MoveList;
+import org.example.engine.Search;
+import org.example.engine.SearchLimits;
+import org.example.engine.SearchResult;
+
+import javax.swing.SwingWorker;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Главный контроллер игры, управляющий логикой шахматного приложения.
@@ -19,7 +30,11 @@ import org.example.Rook;
  * Обрабатывает ходы игроков, проверяет правила игры и управляет состоянием игры.
  */
 public class GameController {
+    private static final long engineTimeMillis = 1000;
+
     private final Pieces pieces;
+    private final Search engine = new Search();
+    private final MoveList moveList = new MoveList();
     private final BoardPanel boardPanel;
     private final InfoPanel infoPanel;
 
@@ -27,6 +42,7 @@ public class GameController {
     private Piece selectedPiece;
     private int clickCounter = 0;
     private boolean gameActive = true;
+    private boolean engineThinking = false;
 
     /**
      * Конструктор игрового контроллера.
@@ -52,7 +68,7 @@ public class GameController {
      * @see Piece
      */
     public void handleTileClick(Coordinate coordinate) {
-        if (!gameActive) return;
+        if (!gameActive || engineThinking) return;
 
         Piece clickedPiece = pieces.getPieces().get(coordinate);
 
@@ -64,13 +80,9 @@ public class GameController {
         } else {
             // Второй клик - попытка хода
             if (selectedPiece != null) {
-                // Проверяем, является ли ход рокировкой
-                if (selectedPiece.getName() == ID.KING && isCastlingMove(coordinate)) {
-                    handleCastlingMove(coordinate);
-                }
-                // Проверяем обычный ход
-                else if (selectedPiece.isValidMove(coordinate, currentTurn)) {
-                    handleMove(coordinate);
+                // Проверяем ход, включая рокировку: она входит в возможные ходы короля
+                if (selectedPiece.isValidMove(pieces, coordinate, currentTurn)) {
+                    handleMove(coordinate, null);
                 } else {
                     // Если кликнули на другую свою фигуру - выбираем её
                     if (clickedPiece != null && clickedPiece.getColour() == currentTurn) {
@@ -83,99 +95,6 @@ public class GameController {
         }
     }
 
-    /**
-     * Проверяет, является ли ход рокировкой
-     * @param targetCoordinate целевая координата
-     * @return true если это ход рокировки
-     */
-    private boolean isCastlingMove(Coordinate targetCoordinate) {
-        if (selectedPiece.getName() != ID.KING) {
-            return false;
-        }
-
-        King king = (King) selectedPiece;
-        Coordinate currentCoord = king.getCoords();
-
-        // Проверяем, что король перемещается на две клетки по горизонтали
-        int fileDiff = Math.abs(targetCoordinate.getFile() - currentCoord.getFile());
-        int rankDiff = Math.abs(targetCoordinate.getRank() - currentCoord.getRank());
-
-        return fileDiff == 2 && rankDiff == 0;
-    }
-
-    /**
-     * Обрабатывает ход рокировки
-     * @param targetCoordinate целевая координата для короля
-     */
-    private void handleCastlingMove(Coordinate targetCoordinate) {
-        King king = (King) selectedPiece;
-        Coordinate currentCoord = king.getCoords();
-
-        // Определяем сторону рокировки
-        boolean isKingside = targetCoordinate.getFile() > currentCoord.getFile();
-
-        // Получаем координаты для рокировки
-        Coordinate kingTargetCoord;
-        Rook rook;
-        Coordinate rookTargetCoord;
-
-        if (isKingside) {
-            if (!king.canCastleKing(pieces)) {
-                resetSelection();
-                return;
-            }
-            kingTargetCoord = king.getCastleCoordKingK();
-            rook = king.getRookKing();
-            rookTargetCoord = rook.getCastleCoordRook(); // F1/F8 для короткой рокировки
-        } else {
-            if (!king.canCastleQueen(pieces)) {
-                resetSelection();
-                return;
-            }
-            kingTargetCoord = king.getCastleCoordKingQ();
-            rook = king.getRookQueen();
-            rookTargetCoord = rook.getCastleCoordRook(); // D1/D8 для длинной рокировки
-        }
-
-        if (!targetCoordinate.equals(kingTargetCoord)) {
-            resetSelection();
-            return;
-        }
-
-        // Сохраняем исходные координаты
-        Coordinate kingOriginalCoord = king.getCoords();
-        Coordinate rookOriginalCoord = rook.getCoords();
-
-        // Удаляем фигуры с исходных позиций
-        pieces.getPieces().remove(kingOriginalCoord);
-        pieces.getPieces().remove(rookOriginalCoord);
-
-        // Обновляем координаты фигур
-        king.setCoords(kingTargetCoord);
-        rook.setCoords(rookTargetCoord);
-
-        // Размещаем фигуры на новых позициях
-        pieces.addPiece(kingTargetCoord, king);
-        pieces.addPiece(rookTargetCoord, rook);
-
-        king.setHasMoved();
-        rook.setHasMoved();
-
-        // Обновляем потенциальные ходы
-        pieces.updatePotentials();
-        boardPanel.updateBoard(pieces);
-
-        // Создаем специальную координату для рокировки
-        Coordinate castlingNotationCoord = isKingside
-                ? new Coordinate('O', 0)  // O-O
-                : new Coordinate('Q', 0); // O-O-O (Q для Queen's side)
-
-        infoPanel.recordMove(castlingNotationCoord, king, pieces, currentTurn);
-
-        switchTurn();
-        checkGameState();
-        resetSelection();
-    }
     /**
      * Выбирает фигуру для последующего хода.
      * Подсвечивает возможные ходы для выбранной фигуры на доске.
@@ -186,23 +105,8 @@ public class GameController {
         this.selectedPiece = piece;
         this.clickCounter = 1;
 
-        // Получаем все возможные ходы
-        var possibleMoves = piece.getPotentialMoves();
-
-        // Если это король, добавляем координаты рокировки в возможные ходы
-        if (piece.getName() == ID.KING) {
-            King king = (King) piece;
-
-            // Проверяем рокировку на королевский фланг
-            if (king.canCastleKing(pieces)) {
-                possibleMoves.add(king.getCastleCoordKingK());
-            }
-
-            // Проверяем рокировку на ферзевый фланг
-            if (king.canCastleQueen(pieces)) {
-                possibleMoves.add(king.getCastleCoordKingQ());
-            }
-        }
+        // Получаем все возможные ходы, для короля в них уже входят рокировки
+        var possibleMoves = piece.getPotentialMoves(pieces);
 
         boardPanel.highlightPossibleMoves(possibleMoves);
     }
@@ -213,34 +117,27 @@ public class GameController {
      * и обновляет состояние игры.
      *
      * @param targetCoordinate целевая координата для перемещения фигуры
+     * @param promotion фигура для превращения пешки или null, чтобы спросить игрока
      * @see PawnPromotionHandler
      * @see Pieces#makeMove(Coordinate, Piece)
      */
-    private void handleMove(Coordinate targetCoordinate) {
+    private void handleMove(Coordinate targetCoordinate, Piece promotion) {
         // Проверяем превращение пешки ДО выполнения хода
         if (selectedPiece.getName() == ID.PAWN) {
             Pawn pawn = (Pawn) selectedPiece;
 
-            // Проверяем, является ли это ходом на две клетки
-            Coordinate currentCoord = selectedPiece.getCoords();
-            int distance = Math.abs(targetCoordinate.getRank() - currentCoord.getRank());
-
-            if (distance == 2) {
-                pawn.setHasMovedTwo(); // Устанавливаем флаг хода на две клетки
-            }
-
-
             if (pawn.canPromoteBlack(targetCoordinate) || pawn.canPromoteWhite(targetCoordinate)) {
 
-                PawnPromotionHandler.handlePawnPromotion(pawn, targetCoordinate);
-            }
-
-
-            if (!pawn.getHasMoved()) {
-                pawn.setHasMovedTwo();
+                if (promotion != null)
+                    pawn.setPromotedPiece(promotion);
+                else
+                    PawnPromotionHandler.handlePawnPromotion(pawn, targetCoordinate);
             }
         }
 
+        // Запись хода строится по позиции до хода, пока известны допустимые ходы фигур
+        String moveString = ChessIO.moveString(pieces, packMove(targetCoordinate), moveList);
+
         // Выполняем ход
         pieces.makeMove(targetCoordinate, selectedPiece);
 
@@ -251,7 +148,7 @@ public class GameController {
 
         // Обновляем UI
         boardPanel.updateBoard(pieces);
-        infoPanel.recordMove(targetCoordinate, selectedPiece, pieces, currentTurn);
+        infoPanel.recordMove(moveString, currentTurn);
 
         // Меняем ход и проверяем состояние игры
         switchTurn();
@@ -261,6 +158,81 @@ public class GameController {
     }
 
 
+    /**
+     * Находит ход выбранной фигуры среди ее допустимых ходов.
+     * Пешка превращается в фигуру, выбранную игроком, или в ферзя
+     *
+     * @param target координата назначения
+     * @return упакованный ход с флагами
+     * @throws IllegalArgumentException если выбранная фигура не может пойти на это поле
+     */
+    private int packMove(Coordinate target) {
+        int to = Bitboards.square(target);
+        ID promotion = null;
+        if (selectedPiece.getName() == ID.PAWN) {
+            Pawn pawn = (Pawn) selectedPiece;
+            if (pawn.canPromoteBlack(target) || pawn.canPromoteWhite(target))
+                promotion = pawn.getPromotedPiece() == null ? ID.QUEEN : pawn.getPromotedPiece().getName();
+        }
+
+        moveList.clear();
+        MoveGenerator.generateFrom(pieces, Bitboards.square(selectedPiece.getCoords()), moveList);
+        for (int i = 0; i < moveList.size(); i++) {
+            int move = moveList.get(i);
+            if (PackedMove.to(move) == to && PackedMove.promotion(move) == promotion)
+                return move;
+        }
+        throw new IllegalArgumentException(selectedPiece.getName().toFullString() + " не может сделать ход на " + target + ".");
+    }
+
+    /**
+     * Запускает ход компьютера за сторону, чей сейчас ход.
+     * Поиск идет в фоновом потоке SwingWorker на копии позиции и занимает не больше секунды,
+     * найденный ход делается в потоке интерфейса. Пока поиск идет, клики по доске
+     * и повторные нажатия игнорируются, поэтому позиция не меняется до хода компьютера.
+     *
+     * @see Search#search(Pieces, SearchLimits)
+     */
+    public void playEngineMove() {
+        if (!gameActive || engineThinking) return;
+
+        resetSelection();
+        engineThinking = true;
+        Pieces position = new Pieces(pieces);
+        new SwingWorker<SearchResult, Void>() {
+            @Override
+            protected SearchResult doInBackground() {
+                return engine.search(position, SearchLimits.time(engineTimeMillis));
+            }
+
+            @Override
+            protected void done() {
+                engineThinking = false;
+                try {
+                    applyEngineMove(get().getBestMove());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    System.err.println("Ошибка поиска хода компьютера: " + e.getCause());
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * Делает найденный компьютером ход
+     * @param move упакованный ход или Search.NO_MOVE, если ходов нет
+     */
+    private void applyEngineMove(int move) {
+        if (!gameActive || move == Search.NO_MOVE)
+            return;
+
+        selectedPiece = pieces.getPiece(PackedMove.from(move));
+        Coordinate target = Bitboards.toCoordinate(PackedMove.to(move));
+        ID promotion = PackedMove.promotion(move);
+        handleMove(target, promotion == null ? null : Boards.createPiece(promotion, selectedPiece.getColour(), target));
+    }
+
     /**
      * Сбрасывает состояние выбора фигуры.
      * Убирает подсветку возможных ходов и обнуляет счетчик кликов.
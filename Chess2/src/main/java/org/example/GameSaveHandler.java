@@ -30,7 +30,7 @@ public class GameSaveHandler {
      */
     public static void handleSaveGame(String moveHistory) {
         ImageIcon icon = UploadFigureUtils.getIcon(
-                new King(COLOUR.W, new Coordinate('f', 1)));
+                new King(COLOUR.W, Coordinate.of('f', 1)));
 
         UIManager.put("OptionPane.background", INFO_COLOR);
         UIManager.put("Panel.background", INFO_COLOR);
@@ -22,6 +22,7 @@ public class InfoPanel extends JPanel {
     private final JTextPane movePane = new JTextPane();
     private final JTextPane matePane = new JTextPane();
     private final JButton saveButton = new JButton("Сохранить игру");
+    private final JButton engineButton = new JButton("Ход компьютера");
 
     private final Color infoColour = new Color(51,51,51);
     private final MoveHistoryManager moveHistoryManager;
@@ -49,7 +50,7 @@ public class InfoPanel extends JPanel {
     /**
      * Инициализирует пользовательский интерфейс панели информации.
      * Создает и настраивает все компоненты: область отображения ходов,
-     * кнопку сохранения и область отображения результатов игры.
+     * кнопки сохранения и хода компьютера и область отображения результатов игры.
      */
     private void initializePanel() {
         setLayout(new GridBagLayout());
@@ -89,6 +90,19 @@ public class InfoPanel extends JPanel {
         gbc.fill = GridBagConstraints.NONE;
         add(saveButton, gbc);
 
+        // Настройка кнопки хода компьютера
+        engineButton.setBackground(new Color(128,128,128));
+        engineButton.setForeground(Color.white);
+        engineButton.setOpaque(true);
+        engineButton.setContentAreaFilled(true);
+        engineButton.setBorderPainted(false);
+        engineButton.addActionListener(e -> {
+            if (gameController != null) {
+                gameController.playEngineMove();
+            }
+        });
+        add(engineButton, gbc);
+
 
         matePane.setEditable(false);
         matePane.setForeground(Color.white);
@@ -105,16 +119,14 @@ public class InfoPanel extends JPanel {
      * Форматирует ход в соответствии с шахматной нотацией и добавляет его
      * в историю с учетом номера хода для белых фигур.
      *
-     * @param coordinate координата, на которую переместилась фигура
-     * @param piece фигура, сделавшая ход
-     * @param pieces объект, содержащий текущее состояние шахматных фигур
+     * @param moveString ход в шахматной нотации
      * @param turn цвет игрока, сделавшего ход
      */
 
 
 
-    public void recordMove(Coordinate coordinate, Piece piece, Pieces pieces, COLOUR turn) {
-        moveHistoryManager.recordMove(coordinate, piece, pieces, turn);
+    public void recordMove(String moveString, COLOUR turn) {
+        moveHistoryManager.recordMove(moveString, turn);
         movePane.setText(moveHistoryManager.getFullMoveHistory());
     }
 
@@ -8,7 +8,7 @@ import org.example.COLOUR;
 import org.example.ID;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.List;
 
 
 /**
@@ -95,15 +95,11 @@ public class King extends Piece {
      */
     public boolean canCastleKing (Pieces pieces) {
 
-        if (pieces.isCheck(getColour()))
+        int right = getColour() == COLOUR.W ? Pieces.WHITE_KINGSIDE : Pieces.BLACK_KINGSIDE;
+        if ((pieces.getCastlingRights() & right) == 0 || pieces.isCheck(getColour()))
             return false;
 
-        HashMap<Coordinate, Piece> colouredPieces = pieces.getColourPieces(getColour());
-
-        for (Piece value : colouredPieces.values()) {
-            if (value.getName() == ID.ROOK && value.getFile() == BOARD.LAST_FILE.getFileVal())
-                rookKing = (Rook) value;
-        }
+        rookKing = (Rook) pieces.getPiece(Coordinate.of(BOARD.LAST_FILE.getFileVal(), getRank()));
 
         int distanceRookKing = 2;
         ArrayList<Coordinate> castleCoords;
@@ -113,12 +109,14 @@ public class King extends Piece {
         else
             castleCoords = Move.rightFree(pieces, this, dimension);
 
-        boolean isSpace = castleCoords.size() == distanceRookKing;
+        // Луч заканчивается и на фигуре соперника, поэтому последнее поле тоже должно быть пустым
+        boolean isSpace = castleCoords.size() == distanceRookKing
+                && !Move.tileFull(pieces, castleCoords.get(distanceRookKing - 1));
 
-        boolean canCastle = rookKing != null &&
-                !rookKing.getHasMoved() &&
+        boolean canCastle = !rookKing.getHasMoved() &&
                 !getHasMoved() &&
-                isSpace;
+                isSpace &&
+                notAttacked(pieces, castleCoords);
 
         if (canCastle) {
             castleCoordKingK = castleCoords.get(1);
@@ -136,15 +134,11 @@ public class King extends Piece {
      */
     public boolean canCastleQueen (Pieces pieces) {
 
-        if (pieces.isCheck(getColour()))
+        int right = getColour() == COLOUR.W ? Pieces.WHITE_QUEENSIDE : Pieces.BLACK_QUEENSIDE;
+        if ((pieces.getCastlingRights() & right) == 0 || pieces.isCheck(getColour()))
             return false;
 
-        HashMap<Coordinate,Piece> colouredPieces = pieces.getColourPieces(getColour());
-
-        for (Piece value : colouredPieces.values()) {
-            if (value.getName() == ID.ROOK && value.getFile() == BOARD.FIRST_FILE.getFileVal())
-                rookQueen = (Rook) value;
-        }
+        rookQueen = (Rook) pieces.getPiece(Coordinate.of(BOARD.FIRST_FILE.getFileVal(), getRank()));
 
         int distanceRookQueen = 3;
         ArrayList<Coordinate> castleCoords;
@@ -156,13 +150,14 @@ public class King extends Piece {
             castleCoords = Move.rightFree(pieces, this, dimension);
         }
 
-        boolean isSpace = castleCoords.size() == distanceRookQueen;
+        boolean isSpace = castleCoords.size() == distanceRookQueen
+                && !Move.tileFull(pieces, castleCoords.get(distanceRookQueen - 1));
 
 
-        boolean canCastle = rookQueen != null &&
-                !rookQueen.getHasMoved() &&
+        boolean canCastle = !rookQueen.getHasMoved() &&
                 !getHasMoved() &&
-                isSpace;
+                isSpace &&
+                notAttacked(pieces, castleCoords.subList(0, 2));
 
         if (canCastle) {
             castleCoordKingQ = castleCoords.get(1);
@@ -173,6 +168,35 @@ public class King extends Piece {
         return false;
     }
 
+    /**
+     * Проверяет, что король не проходит через атакованные поля и не встает на них при рокировке
+     * @param pieces текущее состояние доски
+     * @param path поля, через которые проходит король
+     * @return true если ни одно поле не атаковано соперником
+     */
+    private boolean notAttacked(Pieces pieces, List<Coordinate> path) {
+        for (Coordinate coordinate : path) {
+            if (pieces.isSquareAttacked(coordinate, COLOUR.not(getColour())))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Обновляет список возможных ходов короля, добавляя доступные рокировки
+     * @param pieces текущее состояние доски
+     */
+    @Override
+    public void updatePotentialMoves(Pieces pieces) {
+        super.updatePotentialMoves(pieces);
+
+        if (canCastleKing(pieces))
+            getPotentialMoves().add(castleCoordKingK);
+
+        if (canCastleQueen(pieces))
+            getPotentialMoves().add(castleCoordKingQ);
+    }
+
     @Override
     public King makeCopy() {
         return new King(this);
@@ -180,26 +204,7 @@ public class King extends Piece {
 
     @Override
     public ArrayList<Coordinate> getRawMoves(Pieces pieces) {
-        ArrayList<Coordinate> front = Move.frontFree(pieces,this,single);
-        ArrayList<Coordinate> right = Move.rightFree(pieces,this,single);
-        ArrayList<Coordinate> back = Move.backFree(pieces,this,single);
-        ArrayList<Coordinate> left = Move.leftFree(pieces,this,single);
-        ArrayList<Coordinate> frontRDig = Move.frontRDigFree(pieces, this,single);
-        ArrayList<Coordinate> backRDig = Move.backRDigFree(pieces, this, single);
-        ArrayList<Coordinate> backLDig = Move.backLDigFree(pieces, this,single);
-        ArrayList<Coordinate> frontLDig = Move.frontLDigFree(pieces, this, single);
-
-        front.addAll(right);
-        back.addAll(left);
-        front.addAll(back);
-
-        frontRDig.addAll(backRDig);
-        backLDig.addAll(frontLDig);
-        frontRDig.addAll(backLDig);
-
-        front.addAll(frontRDig);
-
-        return front;
+        return Move.kingMoves(pieces, this);
     }
 
 
@@ -40,16 +40,7 @@ public class Knight extends Piece {
 
     @Override
     public ArrayList<Coordinate> getRawMoves(Pieces pieces) {
-        ArrayList<Coordinate> front = Move.frontKnight(pieces,this);
-        ArrayList<Coordinate> right = Move.backKnight(pieces,this);
-        ArrayList<Coordinate> back = Move.rightKnight(pieces,this);
-        ArrayList<Coordinate> left = Move.leftKnight(pieces,this);
-
-        front.addAll(right);
-        back.addAll(left);
-        front.addAll(back);
-
-        return front;
+        return Move.knightMoves(pieces, this);
     }
 
 }
\ No newline at end of file
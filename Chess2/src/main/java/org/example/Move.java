@@ -9,13 +9,101 @@ import java.util.Objects;
 
 /**
  * Класс для работы с ходами фигур на шахматной доске
- * Содержит статические методы для определения возможных ходов в различных направлениях
+ * Содержит статические методы для определения возможных ходов в различных направлениях.
+ * Лучи, прыжки коня и шаги короля берутся из таблиц Bitboards,
+ * поэтому методы только перебирают биты маски до первой занятой клетки.
+ * Направления "вперед", "вправо" и т.д. считаются от стороны фигуры: для черных они зеркальны.
  */
 public class Move {
 
     private static final String nullPieces = "Нельзя передать null объект в параметре pieces.";
     private static final String nullCoord = "Координата не может быть null.";
 
+    private static final int north = Bitboards.NORTH;
+    private static final int northEast = Bitboards.NORTH_EAST;
+    private static final int east = Bitboards.EAST;
+    private static final int southEast = Bitboards.SOUTH_EAST;
+    private static final int south = Bitboards.SOUTH;
+    private static final int southWest = Bitboards.SOUTH_WEST;
+    private static final int west = Bitboards.WEST;
+    private static final int northWest = Bitboards.NORTH_WEST;
+
+    /**
+     * Собирает ходы вдоль луча до первой фигуры: пустые поля и поле с фигурой соперника
+     * @param pieces текущее состояние доски
+     * @param piece фигура, для которой определяются ходы
+     * @param direction направление луча
+     * @param limit максимальное расстояние для хода
+     * @return список координат возможных ходов
+     */
+    private static ArrayList<Coordinate> slide(Pieces pieces, Piece piece, int direction, int limit) {
+        Objects.requireNonNull(pieces,nullPieces);
+
+        ArrayList<Coordinate> moves = new ArrayList<>();
+        long own = pieces.getColourBitboard(piece.getColour());
+        // Своя фигура может стоять только в конце луча, поэтому ее снятие не сбивает счет расстояния
+        long targets = Bitboards.rayAttacks(direction, piece.getCoords().getSquare(), pieces.getOccupied()) & ~own;
+
+        for (int i = 0; targets != 0 && i < limit; i++) {
+            int next = Bitboards.nearest(direction, targets);
+            moves.add(Coordinate.of(next));
+            targets &= ~Bitboards.bit(next);
+        }
+        return moves;
+    }
+
+    /**
+     * Собирает ходы на поля маски, не занятые своими фигурами
+     * @param pieces текущее состояние доски
+     * @param piece фигура, для которой определяются ходы
+     * @param targets маска полей из таблицы Bitboards
+     * @return список координат возможных ходов
+     */
+    private static ArrayList<Coordinate> jump(Pieces pieces, Piece piece, long targets) {
+        Objects.requireNonNull(pieces,nullPieces);
+
+        ArrayList<Coordinate> moves = new ArrayList<>();
+        targets &= ~pieces.getColourBitboard(piece.getColour());
+        while (targets != 0) {
+            moves.add(Coordinate.of(Long.numberOfTrailingZeros(targets)));
+            targets &= targets - 1;
+        }
+        return moves;
+    }
+
+    /**
+     * Выбирает направление с точки зрения стороны фигуры
+     * @param piece фигура
+     * @param white направление для белых
+     * @param black то же направление для черных
+     * @return направление луча
+     */
+    private static int side(Piece piece, int white, int black) {
+        return piece.getColour() == COLOUR.W ? white : black;
+    }
+
+    /**
+     * Получает прыжки коня, смещающие его на два поля в заданную сторону
+     * @param piece фигура
+     * @param fileShift смещение по вертикалям: 2, -2 или 0, если важно смещение по горизонталям
+     * @param rankShift смещение по горизонталям: 2, -2 или 0
+     * @return маска полей прыжков
+     */
+    private static long knightJumps(Piece piece, int fileShift, int rankShift) {
+        int square = piece.getCoords().getSquare();
+        long jumps = Bitboards.KNIGHT_ATTACKS[square];
+        long result = 0L;
+        while (jumps != 0) {
+            int target = Long.numberOfTrailingZeros(jumps);
+            jumps &= jumps - 1;
+            int shift = rankShift != 0 ? Bitboards.rankOf(target) - Bitboards.rankOf(square)
+                    : Bitboards.fileOf(target) - Bitboards.fileOf(square);
+            if (shift == (rankShift != 0 ? rankShift : fileShift))
+                result |= Bitboards.bit(target);
+        }
+        return result;
+    }
+
     /**
      * Проверяет, что на указанной координате находится фигура противоположного цвета
      * @param pieces текущее состояние доски
@@ -27,7 +115,7 @@ public class Move {
         Objects.requireNonNull(pieces,nullPieces);
         Objects.requireNonNull(destination,nullCoord);
 
-        return !(pieces.getPieces().get(destination).getColour() == (colour));
+        return !pieces.isOccupied(destination, colour);
     }
 
     /**
@@ -41,7 +129,7 @@ public class Move {
         Objects.requireNonNull(pieces,nullPieces);
         Objects.requireNonNull(destination,nullCoord);
 
-        return pieces.getPieces().get(destination) != null;
+        return pieces.isOccupied(destination);
     }
 
     /**
@@ -52,32 +140,7 @@ public class Move {
      * @return список координат возможных ходов вперед
      */
     public static ArrayList<Coordinate> frontFree(Pieces pieces, Piece piece, int limit) {
-
-        ArrayList<Coordinate> moves = new ArrayList<>();
-        int factor;
-
-        if (piece.getColour().equals(COLOUR.B))
-            factor = -1;
-        else
-            factor = 1;
-
-        for (int advance = 1; advance <= limit; advance++) {
-            int change = factor*advance;
-            Coordinate checkCoord = new Coordinate(piece.getFile(), piece.getRank() + change);
-            if (Coordinate.inBoard(checkCoord)) {
-                boolean occupiedTile = tileFull(pieces, checkCoord);
-                if (occupiedTile && isNotTileColour(pieces, checkCoord, piece.getColour())) {
-                    moves.add(checkCoord);
-                    return moves;
-                }
-                else if (occupiedTile)
-                    return moves;
-                else
-                    moves.add(checkCoord);
-            }
-        }
-
-        return moves;
+        return slide(pieces, piece, side(piece, north, south), limit);
     }
 
     /**
@@ -88,37 +151,9 @@ public class Move {
      * @return список координат возможных ходов назад
      */
     public static ArrayList<Coordinate> backFree(Pieces pieces, Piece piece, int limit) {
-
-        ArrayList<Coordinate> moves = new ArrayList<>();
-        int factor;
-
-        if (piece.getColour().equals(COLOUR.B))
-            factor = 1;
-        else
-            factor = -1;
-
-        for (int advance = 1; advance <= limit; advance++) {
-            int change = factor*advance;
-            Coordinate checkCoord = new Coordinate(piece.getFile(),piece.getRank()+change);
-            if (Coordinate.inBoard(checkCoord)) {
-                boolean occupiedTile = tileFull(pieces, checkCoord);
-                if (occupiedTile && isNotTileColour(pieces, checkCoord, piece.getColour())) {
-                    moves.add(checkCoord);
-                    return moves;
-                }
-                else if (occupiedTile)
-                    return moves;
-                else
-                    moves.add(checkCoord);
-            }
-        }
-        return moves;
+        return slide(pieces, piece, side(piece, south, north), limit);
     }
 
-    /*
-
-     */
-
     /**
      * Получает список возможных ходов вправо от фигуры
      * @param pieces текущее состояние доски
@@ -127,31 +162,7 @@ public class Move {
      * @return список координат возможных ходов вправо
      */
     public static ArrayList<Coordinate> rightFree(Pieces pieces, Piece piece, int limit) {
-
-        ArrayList<Coordinate> moves = new ArrayList<>();
-        int factor;
-
-        if (piece.getColour().equals(COLOUR.B))
-            factor = -1;
-        else
-            factor = 1;
-
-        for (int advance = 1; advance <= limit; advance++) {
-            int change = factor*advance;
-            Coordinate checkCoord = new Coordinate((char) (piece.getFile()+change),piece.getRank());
-            if (Coordinate.inBoard(checkCoord)) {
-                boolean occupiedTile = tileFull(pieces, checkCoord);
-                if (occupiedTile && isNotTileColour(pieces, checkCoord, piece.getColour())) {
-                    moves.add(checkCoord);
-                    return moves;
-                }
-                else if (occupiedTile)
-                    return moves;
-                else
-                    moves.add(checkCoord);
-            }
-        }
-        return moves;
+        return slide(pieces, piece, side(piece, east, west), limit);
     }
 
     /**
@@ -162,31 +173,7 @@ public class Move {
      * @return список координат возможных ходов влево
      */
     public static ArrayList<Coordinate> leftFree(Pieces pieces, Piece piece, int limit) {
-
-        ArrayList<Coordinate> moves = new ArrayList<>();
-        int factor;
-
-        if (piece.getColour().equals(COLOUR.B))
-            factor = 1;
-        else
-            factor = -1;
-
-        for (int advance = 1; advance <= limit; advance++) {
-            int change = factor*advance;
-            Coordinate checkCoord = new Coordinate((char) (piece.getFile()+change),piece.getRank());
-            if (Coordinate.inBoard(checkCoord)) {
-                boolean occupiedTile = tileFull(pieces, checkCoord);
-                if (occupiedTile && isNotTileColour(pieces, checkCoord, piece.getColour())) {
-                    moves.add(checkCoord);
-                    return moves;
-                }
-                else if (occupiedTile)
-                    return moves;
-                else
-                    moves.add(checkCoord);
-            }
-        }
-        return moves;
+        return slide(pieces, piece, side(piece, west, east), limit);
     }
 
     /**
@@ -197,37 +184,7 @@ public class Move {
      * @return список координат возможных ходов по диагонали вперед-вправо
      */
     public static ArrayList<Coordinate> frontRDigFree(Pieces pieces, Piece piece, int limit) {
-
-        ArrayList<Coordinate> moves = new ArrayList<>();
-        int factorV;
-        int factorH;
-
-        if (piece.getColour().equals(COLOUR.B)) {
-            factorV = -1;
-            factorH = -1;
-        }
-        else {
-            factorV = 1;
-            factorH = 1;
-        }
-
-        for (int advance = 1; advance <= limit; advance++) {
-            int changeV = factorV*advance;
-            int changeH = factorH*advance;
-            Coordinate checkCoord = new Coordinate((char) (piece.getFile()+changeV),piece.getRank()+changeH);
-            if (Coordinate.inBoard(checkCoord)) {
-                boolean occupiedTile = tileFull(pieces, checkCoord);
-                if (occupiedTile && isNotTileColour(pieces, checkCoord, piece.getColour())) {
-                    moves.add(checkCoord);
-                    return moves;
-                }
-                else if (occupiedTile)
-                    return moves;
-                else if (!tileFull(pieces, checkCoord))
-                    moves.add(checkCoord);
-            }
-        }
-        return moves;
+        return slide(pieces, piece, side(piece, northEast, southWest), limit);
     }
 
     /**
@@ -238,40 +195,9 @@ public class Move {
      * @return список координат возможных ходов по диагонали назад-вправо
      */
     public static ArrayList<Coordinate> backRDigFree(Pieces pieces, Piece piece, int limit) {
-
-        ArrayList<Coordinate> moves = new ArrayList<>();
-        int factorV;
-        int factorH;
-
-        if (piece.getColour().equals(COLOUR.B)) {
-            factorV = -1;
-            factorH = 1;
-        }
-        else {
-            factorV = 1;
-            factorH = -1;
-        }
-
-        for (int advance = 1; advance <= limit; advance++) {
-            int changeV = factorV*advance;
-            int changeH = factorH*advance;
-            Coordinate checkCoord = new Coordinate((char) (piece.getFile()+changeV),piece.getRank()+changeH);
-            if (Coordinate.inBoard(checkCoord)) {
-                boolean occupiedTile = tileFull(pieces, checkCoord);
-                if (occupiedTile && isNotTileColour(pieces, checkCoord, piece.getColour())) {
-                    moves.add(checkCoord);
-                    return moves;
-                }
-                else if (occupiedTile)
-                    return moves;
-                else
-                    moves.add(checkCoord);
-            }
-        }
-        return moves;
+        return slide(pieces, piece, side(piece, southEast, northWest), limit);
     }
 
-
     /**
      * Получает список возможных ходов по диагонали назад-влево от фигуры
      * @param pieces текущее состояние доски
@@ -280,37 +206,7 @@ public class Move {
      * @return список координат возможных ходов по диагонали назад-влево
      */
     public static ArrayList<Coordinate> backLDigFree(Pieces pieces, Piece piece, int limit) {
-
-        ArrayList<Coordinate> moves = new ArrayList<>();
-        int factorV;
-        int factorH;
-
-        if (piece.getColour().equals(COLOUR.B)) {
-            factorV = 1;
-            factorH = 1;
-        }
-        else {
-            factorV = -1;
-            factorH = -1;
-        }
-
-        for (int advance = 1; advance <= limit; advance++) {
-            int changeV = factorV*advance;
-            int changeH = factorH*advance;
-            Coordinate checkCoord = new Coordinate((char) (piece.getFile()+changeV),piece.getRank()+changeH);
-            if (Coordinate.inBoard(checkCoord)) {
-                boolean occupiedTile = tileFull(pieces, checkCoord);
-                if (occupiedTile && isNotTileColour(pieces, checkCoord, piece.getColour())) {
-                    moves.add(checkCoord);
-                    return moves;
-                }
-                else if (occupiedTile)
-                    return moves;
-                else
-                    moves.add(checkCoord);
-            }
-        }
-        return moves;
+        return slide(pieces, piece, side(piece, southWest, northEast), limit);
     }
 
     /**
@@ -321,37 +217,7 @@ public class Move {
      * @return список координат возможных ходов по диагонали вперед-влево
      */
     public static ArrayList<Coordinate> frontLDigFree(Pieces pieces, Piece piece, int limit) {
-
-        ArrayList<Coordinate> moves = new ArrayList<>();
-        int factorV;
-        int factorH;
-
-        if (piece.getColour().equals(COLOUR.B)) {
-            factorV = 1;
-            factorH = -1;
-        }
-        else {
-            factorV = -1;
-            factorH = 1;
-        }
-
-        for (int advance = 1; advance <= limit; advance++) {
-            int changeV = factorV*advance;
-            int changeH = factorH*advance;
-            Coordinate checkCoord = new Coordinate((char) (piece.getFile()+changeV),piece.getRank()+changeH);
-            if (Coordinate.inBoard(checkCoord)) {
-                boolean occupiedTile = tileFull(pieces, checkCoord);
-                if (occupiedTile && isNotTileColour(pieces, checkCoord, piece.getColour())) {
-                    moves.add(checkCoord);
-                    return moves;
-                }
-                else if (occupiedTile)
-                    return moves;
-                else
-                    moves.add(checkCoord);
-            }
-        }
-        return moves;
+        return slide(pieces, piece, side(piece, northWest, southEast), limit);
     }
 
     /**
@@ -361,36 +227,7 @@ public class Move {
      * @return список координат возможных ходов коня вперед
      */
     public static ArrayList<Coordinate> frontKnight(Pieces pieces, Piece piece) {
-
-        ArrayList<Coordinate> moves = new ArrayList<>();
-        int factor;
-        int sideDistance = 1;
-
-        if (piece.getColour().equals(COLOUR.B)) {
-            factor = -1;
-        }
-        else {
-            factor = 1;
-        }
-
-        int changeV = 2*factor;
-        int newRank = piece.getRank() + changeV;
-
-        Coordinate frontRight = new Coordinate((char) (piece.getFile() + sideDistance),newRank);
-        Coordinate frontLeft = new Coordinate((char) (piece.getFile() - sideDistance),newRank);
-
-        if (Coordinate.inBoard(frontLeft)) {
-            boolean occupiedTile = tileFull(pieces, frontLeft);
-            if (!occupiedTile || isNotTileColour(pieces, frontLeft, piece.getColour()))
-                moves.add(frontLeft);
-        }
-
-        if (Coordinate.inBoard(frontRight)) {
-            boolean occupiedTile = tileFull(pieces, frontRight);
-            if (!occupiedTile || isNotTileColour(pieces, frontRight, piece.getColour()))
-                moves.add(frontRight);
-        }
-        return moves;
+        return jump(pieces, piece, knightJumps(piece, 0, side(piece, 2, -2)));
     }
 
     /**
@@ -400,36 +237,7 @@ public class Move {
      * @return список координат возможных ходов коня назад
      */
     public static ArrayList<Coordinate> backKnight(Pieces pieces, Piece piece) {
-
-        ArrayList<Coordinate> moves = new ArrayList<>();
-        int factor;
-        int sideDistance = 1;
-
-        if (piece.getColour().equals(COLOUR.B)) {
-            factor = 1;
-        }
-        else {
-            factor = -1;
-        }
-
-        int changeV = 2*factor;
-        int newRank = piece.getRank() + changeV;
-
-        Coordinate backRight = new Coordinate((char) (piece.getFile() + sideDistance),newRank);
-        Coordinate backLeft = new Coordinate((char) (piece.getFile() - sideDistance),newRank);
-
-        if (Coordinate.inBoard(backLeft)) {
-            boolean occupiedTile = tileFull(pieces, backLeft);
-            if (!occupiedTile || isNotTileColour(pieces, backLeft, piece.getColour()))
-                moves.add(backLeft);
-        }
-
-        if (Coordinate.inBoard(backRight)) {
-            boolean occupiedTile = tileFull(pieces, backRight);
-            if (!occupiedTile || isNotTileColour(pieces, backRight, piece.getColour()))
-                moves.add(backRight);
-        }
-        return moves;
+        return jump(pieces, piece, knightJumps(piece, 0, side(piece, -2, 2)));
     }
 
     /**
@@ -439,36 +247,7 @@ public class Move {
      * @return список координат возможных ходов коня вправо
      */
     public static ArrayList<Coordinate> rightKnight(Pieces pieces, Piece piece) {
-
-        ArrayList<Coordinate> moves = new ArrayList<>();
-        int factor;
-        int sideDistance = 1;
-
-        if (piece.getColour().equals(COLOUR.B)) {
-            factor = -1;
-        }
-        else {
-            factor = 1;
-        }
-
-        int changeH = 2*factor;
-        char newFile = (char) (piece.getFile() + changeH);
-
-        Coordinate rightTop = new Coordinate(newFile,piece.getRank() + sideDistance);
-        Coordinate rightBottom = new Coordinate(newFile, piece.getRank() - sideDistance);
-
-        if (Coordinate.inBoard(rightTop)) {
-            boolean occupiedTile = tileFull(pieces, rightTop);
-            if (!occupiedTile || isNotTileColour(pieces, rightTop, piece.getColour()))
-                moves.add(rightTop);
-        }
-
-        if (Coordinate.inBoard(rightBottom)) {
-            boolean occupiedTile = tileFull(pieces, rightBottom);
-            if (!occupiedTile || isNotTileColour(pieces, rightBottom, piece.getColour()))
-                moves.add(rightBottom);
-        }
-        return moves;
+        return jump(pieces, piece, knightJumps(piece, side(piece, 2, -2), 0));
     }
 
     /**
@@ -478,36 +257,27 @@ public class Move {
      * @return список координат возможных ходов коня влево
      */
     public static ArrayList<Coordinate> leftKnight(Pieces pieces, Piece piece) {
+        return jump(pieces, piece, knightJumps(piece, side(piece, -2, 2), 0));
+    }
 
-        ArrayList<Coordinate> moves = new ArrayList<>();
-        int factor;
-        int sideDistance = 1;
-
-        if (piece.getColour().equals(COLOUR.B)) {
-            factor = 1;
-        }
-        else {
-            factor = -1;
-        }
-
-        int changeH = 2*factor;
-        char newFile = (char) (piece.getFile() + changeH);
-
-        Coordinate leftTop = new Coordinate(newFile,piece.getRank() + sideDistance);
-        Coordinate leftBottom = new Coordinate(newFile, piece.getRank() - sideDistance);
-
-        if (Coordinate.inBoard(leftBottom)) {
-            boolean occupiedTile = tileFull(pieces, leftBottom);
-            if (!occupiedTile || isNotTileColour(pieces, leftBottom, piece.getColour()))
-                moves.add(leftBottom);
-        }
+    /**
+     * Получает список всех возможных прыжков коня
+     * @param pieces текущее состояние доски
+     * @param piece конь, для которого определяются ходы
+     * @return список координат возможных ходов коня
+     */
+    public static ArrayList<Coordinate> knightMoves(Pieces pieces, Piece piece) {
+        return jump(pieces, piece, Bitboards.KNIGHT_ATTACKS[piece.getCoords().getSquare()]);
+    }
 
-        if (Coordinate.inBoard(leftTop)) {
-            boolean occupiedTile = tileFull(pieces, leftTop);
-            if (!occupiedTile || isNotTileColour(pieces, leftTop, piece.getColour()))
-                moves.add(leftTop);
-        }
-        return moves;
+    /**
+     * Получает список всех возможных шагов короля без рокировки
+     * @param pieces текущее состояние доски
+     * @param piece король, для которого определяются ходы
+     * @return список координат возможных ходов короля
+     */
+    public static ArrayList<Coordinate> kingMoves(Pieces pieces, Piece piece) {
+        return jump(pieces, piece, Bitboards.KING_ATTACKS[piece.getCoords().getSquare()]);
     }
 
 }
\ No newline at end of file
@@ -2,11 +2,7 @@ package org.example;
 
 
 
-import org.example.ChessIO;
 import org.example.COLOUR;
-import org.example.Coordinate;
-import org.example.Pieces;
-import org.example.Piece;
 
 /**
  * Менеджер для управления историей ходов шахматной игры.
@@ -20,16 +16,12 @@ public class MoveHistoryManager {
 
     /**
      * Записывает выполненный ход в историю игры.
-     * Форматирует ход в соответствии с шахматной нотацией и добавляет номер хода
-     * для белых фигур. Для черных фигур ход добавляется без номера.
+     * Добавляет номер хода для белых фигур. Для черных фигур ход добавляется без номера.
      *
-     * @param coordinate координата, на которую переместилась фигура
-     * @param piece фигура, сделавшая ход
-     * @param pieces объект, содержащий текущее состояние шахматных фигур
+     * @param moveString ход в шахматной нотации, см. ChessIO#moveString(Pieces, int, MoveList)
      * @param turn цвет игрока, сделавшего ход
      */
-    public void recordMove(Coordinate coordinate, Piece piece, Pieces pieces, COLOUR turn) {
-        String moveString = ChessIO.moveString(pieces, coordinate, piece);
+    public void recordMove(String moveString, COLOUR turn) {
 
         if (turn == COLOUR.W) {
             numberOfTurns++;
@@ -0,0 +1,87 @@
+package org.example;
+
+
+import org.example.Piece;
+
+/**
+ * Запись для отмены хода, сделанного через Pieces.make.
+ * Хранит всё, что нельзя восстановить по самому ходу: взятую фигуру,
+ * права на рокировку, поле взятия на проходе, счетчик полуходов и флаги hasMoved.
+ */
+public class MoveUndo {
+
+    Piece piece;
+    Coordinate fromCoordinate;
+    int from;
+    int to;
+    Piece captured;
+    int capturedSquare;
+    Piece promoted;
+    Piece rook;
+    Coordinate rookCoordinate;
+    int rookFrom;
+    int rookTo;
+    boolean hadMoved;
+    boolean rookHadMoved;
+    int castlingRights;
+    int enPassantSquare;
+    int halfmoveClock;
+    long key;
+    long version;
+
+    /**
+     * Получает фигуру, сделавшую ход
+     * @return фигура, сделавшая ход
+     */
+    public Piece getPiece() {
+        return piece;
+    }
+
+    /**
+     * Получает индекс поля, с которого был сделан ход
+     * @return индекс исходного поля
+     */
+    public int getFrom() {
+        return from;
+    }
+
+    /**
+     * Получает индекс поля, на которое был сделан ход
+     * @return индекс поля назначения
+     */
+    public int getTo() {
+        return to;
+    }
+
+    /**
+     * Получает взятую фигуру
+     * @return взятая фигура или null, если ход был без взятия
+     */
+    public Piece getCaptured() {
+        return captured;
+    }
+
+    /**
+     * Получает фигуру, в которую превратилась пешка
+     * @return новая фигура или null, если превращения не было
+     */
+    public Piece getPromoted() {
+        return promoted;
+    }
+
+    /**
+     * Проверяет, был ли ход рокировкой
+     * @return true если вместе с королем была перемещена ладья
+     */
+    public boolean isCastle() {
+        return rook != null;
+    }
+
+    /**
+     * Проверяет, был ли ход взятием на проходе
+     * @return true если взятая пешка стояла не на поле назначения
+     */
+    public boolean isEnPassant() {
+        return captured != null && capturedSquare != to;
+    }
+}
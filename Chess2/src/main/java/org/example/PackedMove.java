@@ -0,0 +1,123 @@
+package org.example;
+
+
+import org.example.ID;
+
+/**
+ * Компактное представление хода в одном числе int.
+ * Биты 0-5 хранят исходное поле, биты 6-11 поле назначения,
+ * биты 12-14 тип фигуры превращения (ID.ordinal() + 1, 0 если превращения нет),
+ * биты 15-18 флаги взятия, взятия на проходе, рокировки и хода пешки на два поля.
+ * Флаги вычисляются по позиции при генерации хода, чтобы выполнять и классифицировать ход
+ * без обращения к доске. Pieces.make(int, Piece, MoveUndo) и Pieces.playMove доверяют флагам,
+ * поэтому им передаются только ходы из MoveGenerator или из истории партии, которая тоже хранит флаги.
+ */
+public class PackedMove {
+
+    /** Ход бьет фигуру, в том числе на проходе */
+    public static final int CAPTURE = 1 << 15;
+    /** Взятие на проходе */
+    public static final int EN_PASSANT = 1 << 16;
+    /** Рокировка, ход короля на два поля */
+    public static final int CASTLE = 1 << 17;
+    /** Ход пешки на два поля */
+    public static final int DOUBLE_PUSH = 1 << 18;
+
+    private static final int squareMask = 0x3F;
+    private static final int toShift = 6;
+    private static final int promotionShift = 12;
+    private static final int promotionMask = 0x7;
+    private static final int flagsMask = CAPTURE | EN_PASSANT | CASTLE | DOUBLE_PUSH;
+    private static final ID[] types = ID.values();
+
+    /**
+     * Упаковывает ход в число
+     * @param from индекс исходного поля
+     * @param to индекс поля назначения
+     * @param promotion тип фигуры превращения или null
+     * @return упакованный ход
+     */
+    public static int encode(int from, int to, ID promotion) {
+        return encode(from, to, promotion, 0);
+    }
+
+    /**
+     * Упаковывает ход с флагами в число
+     * @param from индекс исходного поля
+     * @param to индекс поля назначения
+     * @param promotion тип фигуры превращения или null
+     * @param flags комбинация флагов CAPTURE, EN_PASSANT, CASTLE и DOUBLE_PUSH
+     * @return упакованный ход
+     */
+    public static int encode(int from, int to, ID promotion, int flags) {
+        int promotionBits = promotion == null ? 0 : promotion.ordinal() + 1;
+        return from | (to << toShift) | (promotionBits << promotionShift) | (flags & flagsMask);
+    }
+
+    /**
+     * Получает исходное поле хода
+     * @param move упакованный ход
+     * @return индекс исходного поля
+     */
+    public static int from(int move) {
+        return move & squareMask;
+    }
+
+    /**
+     * Получает поле назначения хода
+     * @param move упакованный ход
+     * @return индекс поля назначения
+     */
+    public static int to(int move) {
+        return (move >>> toShift) & squareMask;
+    }
+
+    /**
+     * Получает тип фигуры превращения
+     * @param move упакованный ход
+     * @return тип фигуры или null, если ход без превращения
+     */
+    public static ID promotion(int move) {
+        int promotionBits = (move >>> promotionShift) & promotionMask;
+        return promotionBits == 0 ? null : types[promotionBits - 1];
+    }
+
+    /**
+     * Получает флаги хода
+     * @param move упакованный ход
+     * @return комбинация флагов CAPTURE, EN_PASSANT, CASTLE и DOUBLE_PUSH
+     */
+    public static int flags(int move) {
+        return move & flagsMask;
+    }
+
+    /**
+     * Проверяет, бьет ли ход фигуру
+     * @param move упакованный ход с флагами
+     * @return true если ход со взятием
+     */
+    public static boolean isCapture(int move) {
+        return (move & CAPTURE) != 0;
+    }
+
+    /**
+     * Проверяет, является ли ход тихим: без взятия и без превращения
+     * @param move упакованный ход с флагами
+     * @return true если ход тихий
+     */
+    public static boolean isQuiet(int move) {
+        return (move & (CAPTURE | (promotionMask << promotionShift))) == 0;
+    }
+
+    /**
+     * Форматирует ход в виде исходного поля и поля назначения, например "e2e4" или "e7e8Q"
+     * @param move упакованный ход
+     * @return строковое представление хода
+     */
+    public static String toString(int move) {
+        ID promotion = promotion(move);
+        return Bitboards.toCoordinate(from(move)).toString()
+                + Bitboards.toCoordinate(to(move)).toString()
+                + (promotion == null ? "" : promotion.toString());
+    }
+}
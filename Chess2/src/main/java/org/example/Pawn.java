@@ -16,10 +16,6 @@ import java.util.ArrayList;
  */
 public class Pawn extends Piece {
 
-    private boolean hasMovedTwo = false;
-    private boolean enPassantLeft = false;
-    private boolean enPassantRight = false;
-    private Coordinate previousCoordinate = new Coordinate();
     private Piece promotedPiece;
 
     /**
@@ -37,58 +33,8 @@ public class Pawn extends Piece {
      */
     public Pawn(Pawn original) {
         super(original);
-        this.hasMovedTwo = original.hasMovedTwo;
-        this.enPassantLeft = original.enPassantLeft;
-        this.enPassantRight = original.enPassantRight;
-        this.previousCoordinate = new Coordinate(original.previousCoordinate);
         this.promotedPiece = original.promotedPiece != null ? original.promotedPiece.makeCopy() : null;
     }
-    /**
-     * Устанавливает предыдущую координату пешки
-     * @param previousCoordinate предыдущая координата
-     */
-    public void setPreviousCoordinate(Coordinate previousCoordinate) {
-        this.previousCoordinate = previousCoordinate;
-    }
-
-    /**
-     * Получает предыдущую координату пешки
-     * @return предыдущая координата
-     */
-    public Coordinate getPreviousCoordinate() {
-        return previousCoordinate;
-    }
-
-    /**
-     * Отмечает, что пешка сделала ход на две клетки
-     */
-    public void setHasMovedTwo() {
-        this.hasMovedTwo = true;
-    }
-
-    /**
-     * Проверяет, делала ли пешка ход на две клетки
-     * @return true если пешка делала ход на две клетки
-     */
-    public boolean getHasMovedTwo() {
-        return hasMovedTwo;
-    }
-
-    /**
-     * Проверяет возможность взятия на проходе слева
-     * @return true если возможно взятие на проходе слева
-     */
-    public boolean getEnPassantLeft() {
-        return enPassantLeft;
-    }
-
-    /**
-     * Проверяет возможность взятия на проходе справа
-     * @return true если возможно взятие на проходе справа
-     */
-    public boolean getEnPassantRight() {
-        return enPassantRight;
-    }
 
     /**
      * Проверяет, может ли пешка съесть фигуру по диагонали слева
@@ -110,7 +56,7 @@ public class Pawn extends Piece {
 
         char newFile = (char) (getFile() + factorH);
         int newRank = getRank() + factorV;
-        Coordinate leftDig = new Coordinate(newFile, newRank);
+        Coordinate leftDig = Coordinate.of(newFile, newRank);
 
         return Move.tileFull(pieces, leftDig) && Move.isNotTileColour(pieces, leftDig, getColour());
     }
@@ -135,11 +81,32 @@ public class Pawn extends Piece {
 
         char newFile = (char) (getFile() + factorH);
         int newRank = getRank() + factorV;
-        Coordinate rightDig = new Coordinate(newFile, newRank);
+        Coordinate rightDig = Coordinate.of(newFile, newRank);
 
         return Move.tileFull(pieces, rightDig) && Move.isNotTileColour(pieces, rightDig, getColour());
     }
 
+    /**
+     * Проверяет, может ли пешка взять на проходе пешку, только что сделавшую ход на две клетки
+     * @param pieces текущее состояние доски
+     * @return координата поля взятия или null, если взятие на проходе невозможно
+     */
+    private Coordinate enPassantCapture(Pieces pieces) {
+        int enPassantSquare = pieces.getEnPassantSquare();
+        if (enPassantSquare == Bitboards.NO_SQUARE)
+            return null;
+
+        int factorV = getColour() == COLOUR.B ? -1 : 1;
+        int enPassantRank = Bitboards.rankOf(enPassantSquare);
+        // Поле взятия находится за пешкой соперника, то есть на 6-й горизонтали для белых и на 3-й для черных
+        int captureRank = getColour() == COLOUR.B ? BOARD.FIRST_RANK.getRankVal() + 2 : BOARD.LAST_RANK.getRankVal() - 2;
+
+        if (enPassantRank == captureRank && enPassantRank == getRank() + factorV
+                && Math.abs(Bitboards.fileOf(enPassantSquare) - getFile()) == 1)
+            return Bitboards.toCoordinate(enPassantSquare);
+        return null;
+    }
+
     /**
      * Получает возможные ходы пешки вперед
      * @param pieces текущее состояние доски
@@ -232,6 +199,11 @@ public class Pawn extends Piece {
         if (canEatRightDig(pieces))
             pawnMoves.addAll(Move.frontRDigFree(pieces, this, 1));
 
+        // Взятие на проходе
+        Coordinate enPassant = enPassantCapture(pieces);
+        if (enPassant != null)
+            pawnMoves.add(enPassant);
+
         // Обычный ход вперед на одну клетку
         pawnMoves.addAll(pawnForward(pieces));
 
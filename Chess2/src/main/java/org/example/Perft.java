@@ -0,0 +1,277 @@
+package org.example;
+
+
+import org.example.COLOUR;
+import org.example.ID;
+import org.example.Coordinate;
+import org.example.Pieces;
+import org.example.Piece;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Подсчет узлов дерева ходов (perft) для проверки и замера генератора ходов.
+ * Число листьев на заданной глубине сравнивается с известными значениями,
+ * а скорость подсчета служит базой для сравнения оптимизаций.
+ *
+ * Запуск: java org.example.Perft [глубина] [--divide] [--suite] [--fen "запись"] [ходы...],
+ * где ходы записываются как "e2e4" или "e7e8Q" и задают позицию от начальной или от позиции FEN.
+ */
+public class Perft {
+
+    private static final ID[] promotionTypes = {ID.QUEEN, ID.ROOK, ID.BISHOP, ID.KNIGHT};
+
+    /** Начальная позиция и число листьев на глубинах 1..5 */
+    private static final long[] startPositionCounts = {20, 400, 8902, 197281, 4865609};
+
+    /** Позиции FEN с рокировками, взятием на проходе и превращениями и число листьев на глубинах 1..4 */
+    private static final String[] suiteFens = {
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8"
+    };
+    private static final long[][] suiteCounts = {
+            {48, 2039, 97862, 4085603},
+            {14, 191, 2812, 43238},
+            {6, 264, 9467, 422333},
+            {44, 1486, 62379, 2103487}
+    };
+
+    private final Pieces pieces;
+
+    /**
+     * Конструктор подсчета для позиции. Позиция копируется и не изменяется
+     * @param pieces позиция, от которой строится дерево ходов
+     */
+    public Perft(Pieces pieces) {
+        this.pieces = new Pieces(pieces);
+    }
+
+    /**
+     * Считает число листьев дерева ходов
+     * @param depth глубина в полуходах
+     * @return число позиций на заданной глубине
+     */
+    public long count(int depth) {
+        if (depth < 0)
+            throw new IllegalArgumentException("Глубина не может быть отрицательной.");
+        return perft(depth);
+    }
+
+    /**
+     * Считает число листьев отдельно для каждого хода из корня
+     * @param depth глубина в полуходах, не меньше 1
+     * @return ходы в виде "e2e4" и число листьев после каждого из них
+     */
+    public LinkedHashMap<String, Long> divide(int depth) {
+        if (depth < 1)
+            throw new IllegalArgumentException("Глубина для divide должна быть не меньше 1.");
+
+        LinkedHashMap<String, Long> result = new LinkedHashMap<>();
+        for (int move : legalMoves()) {
+            MoveUndo undo = makePacked(move);
+            result.put(PackedMove.toString(move), perft(depth - 1));
+            pieces.unmake(undo);
+        }
+        return result;
+    }
+
+    /**
+     * Рекурсивный подсчет листьев
+     * @param depth оставшаяся глубина
+     * @return число листьев
+     */
+    private long perft(int depth) {
+        if (depth == 0)
+            return 1;
+
+        ArrayList<Integer> moves = legalMoves();
+        if (depth == 1)
+            return moves.size();
+
+        long nodes = 0;
+        for (int move : moves) {
+            MoveUndo undo = makePacked(move);
+            nodes += perft(depth - 1);
+            pieces.unmake(undo);
+        }
+        return nodes;
+    }
+
+    /**
+     * Собирает все допустимые ходы стороны, чей сейчас ход.
+     * Превращение пешки дает по отдельному ходу на каждую фигуру
+     * @return список упакованных ходов
+     */
+    private ArrayList<Integer> legalMoves() {
+        ArrayList<Integer> moves = new ArrayList<>();
+        COLOUR side = pieces.getSideToMove();
+        long own = pieces.getColourBitboard(side);
+
+        while (own != 0) {
+            int from = Long.numberOfTrailingZeros(own);
+            own &= own - 1;
+            Piece piece = pieces.getPiece(from);
+
+            for (Coordinate destination : piece.getPotentialMoves(pieces)) {
+                int to = Bitboards.square(destination);
+                if (piece.getName() == ID.PAWN && isLastRank(to, side)) {
+                    for (ID promotion : promotionTypes)
+                        moves.add(PackedMove.encode(from, to, promotion));
+                }
+                else
+                    moves.add(PackedMove.encode(from, to, null));
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * Проверяет, является ли поле последней горизонталью для пешки
+     * @param square индекс поля
+     * @param side цвет пешки
+     * @return true если пешка на этом поле превращается
+     */
+    private boolean isLastRank(int square, COLOUR side) {
+        int rank = Bitboards.rankOf(square);
+        return side == COLOUR.W ? rank == BOARD.LAST_RANK.getRankVal() : rank == BOARD.FIRST_RANK.getRankVal();
+    }
+
+    /**
+     * Делает упакованный ход на позиции
+     * @param move упакованный ход
+     * @return запись для отмены хода
+     */
+    private MoveUndo makePacked(int move) {
+        Piece piece = pieces.getPiece(PackedMove.from(move));
+        Coordinate destination = Bitboards.toCoordinate(PackedMove.to(move));
+        ID promotion = PackedMove.promotion(move);
+        Piece toPromote = promotion == null ? null : Boards.createPiece(promotion, piece.getColour(), destination);
+        return pieces.make(destination, piece, toPromote);
+    }
+
+    /**
+     * Находит ход в записи вида "e2e4" или "e7e8Q" среди допустимых ходов позиции
+     * @param text запись хода
+     * @return упакованный ход
+     * @throws IllegalArgumentException если такого допустимого хода нет
+     */
+    private int parseMove(String text) {
+        for (int move : legalMoves()) {
+            String candidate = PackedMove.toString(move);
+            boolean defaultQueen = PackedMove.promotion(move) == ID.QUEEN && candidate.startsWith(text) && text.length() == 4;
+            if (candidate.equalsIgnoreCase(text) || defaultQueen)
+                return move;
+        }
+        throw new IllegalArgumentException("Ход " + text + " недопустим в позиции.");
+    }
+
+    /**
+     * Делает последовательность ходов от текущей позиции
+     * @param moves ходы в виде "e2e4"
+     */
+    private void playMoves(ArrayList<String> moves) {
+        for (String text : moves)
+            makePacked(parseMove(text));
+    }
+
+    /**
+     * Печатает результат подсчета с числом узлов в секунду
+     * @param label название позиции
+     * @param depth глубина
+     * @param nodes число узлов
+     * @param nanos затраченное время в наносекундах
+     */
+    private static void report(String label, int depth, long nodes, long nanos) {
+        double seconds = nanos / 1e9;
+        long nodesPerSecond = seconds > 0 ? (long) (nodes / seconds) : nodes;
+        System.out.printf("%s, глубина %d: %d узлов за %.3f с (%d узлов/с)%n", label, depth, nodes, seconds, nodesPerSecond);
+    }
+
+    /**
+     * Проверяет генератор ходов на начальной позиции и позициях FEN по известным значениям
+     * @param maxDepth наибольшая глубина проверки
+     * @return true если все значения совпали
+     */
+    public static boolean runSuite(int maxDepth) {
+        boolean passed = checkPosition("Начальная позиция", new Pieces(), startPositionCounts, maxDepth);
+        for (int i = 0; i < suiteFens.length; i++)
+            passed &= checkPosition(suiteFens[i], new Pieces(suiteFens[i]), suiteCounts[i], maxDepth);
+        return passed;
+    }
+
+    /**
+     * Сравнивает число листьев позиции с известными значениями
+     * @param label название позиции
+     * @param pieces позиция
+     * @param counts число листьев на глубинах от 1
+     * @param maxDepth наибольшая глубина проверки
+     * @return true если все значения совпали
+     */
+    private static boolean checkPosition(String label, Pieces pieces, long[] counts, int maxDepth) {
+        boolean passed = true;
+        int depthLimit = Math.min(maxDepth, counts.length);
+        Perft perft = new Perft(pieces);
+
+        for (int depth = 1; depth <= depthLimit; depth++) {
+            long start = System.nanoTime();
+            long nodes = perft.count(depth);
+            report(label, depth, nodes, System.nanoTime() - start);
+
+            long expected = counts[depth - 1];
+            if (nodes != expected) {
+                System.out.println("Ошибка: ожидалось " + expected + " узлов.");
+                passed = false;
+            }
+        }
+        return passed;
+    }
+
+    public static void main(String[] args) {
+        int depth = 4;
+        boolean divide = false;
+        boolean suite = false;
+        String fen = null;
+        ArrayList<String> moves = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--divide"))
+                divide = true;
+            else if (arg.equals("--suite"))
+                suite = true;
+            else if (arg.equals("--fen") && i + 1 < args.length)
+                fen = args[++i];
+            else if (arg.chars().allMatch(Character::isDigit))
+                depth = Integer.parseInt(arg);
+            else
+                moves.add(arg);
+        }
+
+        if (suite) {
+            boolean passed = runSuite(depth);
+            System.out.println(passed ? "Все значения совпали." : "Есть расхождения.");
+            if (!passed)
+                System.exit(1);
+            return;
+        }
+
+        Perft perft = new Perft(fen == null ? new Pieces() : new Pieces(fen));
+        perft.playMoves(moves);
+
+        long start = System.nanoTime();
+        if (divide) {
+            long total = 0;
+            for (Map.Entry<String, Long> entry : perft.divide(depth).entrySet()) {
+                System.out.println(entry.getKey() + ": " + entry.getValue());
+                total += entry.getValue();
+            }
+            report("Всего", depth, total, System.nanoTime() - start);
+        }
+        else
+            report("Позиция", depth, perft.count(depth), System.nanoTime() - start);
+    }
+}
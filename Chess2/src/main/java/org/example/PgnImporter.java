@@ -0,0 +1,250 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Массовый импорт больших файлов PGN.
+ * Файл отображается в память через FileChannel.map участками и делится на части по границам партий:
+ * граница - тег "[" в начале строки после пустой строки. Части разбираются параллельно в ForkJoinPool,
+ * каждая часть читается своим PgnReader, и каждая партия разыгрывается на своем Pieces,
+ * поэтому все ходы проверяются на допустимость. Память не зависит от размера файла.
+ * Граница части вычисляется только по смещению в файле, поэтому соседние части
+ * сходятся в одной точке без пропусков и пересечений.
+ */
+public class PgnImporter {
+
+    /** Размер части файла, которую разбирает одна задача */
+    private static final long segmentSize = 32L << 20;
+    /** Размер окна поиска границы партии */
+    private static final int scanWindow = 1 << 20;
+    private static final int maxReportedErrors = 10;
+
+    private final Path file;
+    private final AtomicInteger reportedErrors = new AtomicInteger();
+    private long games;
+    private long plies;
+    private long errors;
+    private long nanos;
+
+    /**
+     * Конструктор импорта файла
+     * @param file путь к файлу PGN
+     */
+    public PgnImporter(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Разбирает и проверяет все партии файла
+     * @param parallelism число потоков
+     * @throws IOException при ошибке чтения файла
+     * @throws IllegalArgumentException если число потоков не положительно
+     */
+    public void run(int parallelism) throws IOException {
+        if (parallelism <= 0)
+            throw new IllegalArgumentException("Число потоков должно быть положительным.");
+
+        long start = System.nanoTime();
+        reportedErrors.set(0);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] counts = pool.invoke(new SegmentTask(channel, 0, channel.size()));
+            games = counts[0];
+            plies = counts[1];
+            errors = counts[2];
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+        nanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Получает число разобранных партий
+     * @return число партий
+     */
+    public long getGames() {
+        return games;
+    }
+
+    /**
+     * Получает число сыгранных полуходов во всех партиях без ошибок
+     * @return число полуходов
+     */
+    public long getPlies() {
+        return plies;
+    }
+
+    /**
+     * Получает число партий с недопустимым ходом или неверной позицией
+     * @return число партий с ошибками
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * Получает время последнего импорта
+     * @return время в секундах
+     */
+    public double getSeconds() {
+        return nanos / 1e9;
+    }
+
+    /**
+     * Получает скорость последнего импорта
+     * @return число партий в секунду
+     */
+    public double getGamesPerSecond() {
+        return nanos == 0 ? 0.0 : games / getSeconds();
+    }
+
+    /**
+     * Задача разбора участка файла: делится пополам, пока участок больше segmentSize.
+     * Задачи живут только внутри пула одного импорта и никогда не сериализуются,
+     * поэтому serialVersionUID им не нужен
+     */
+    @SuppressWarnings("serial")
+    private class SegmentTask extends RecursiveTask<long[]> {
+
+        private final FileChannel channel;
+        private final long from;
+        private final long to;
+
+        /**
+         * Конструктор задачи
+         * @param channel канал файла
+         * @param from смещение начала участка
+         * @param to смещение конца участка
+         */
+        SegmentTask(FileChannel channel, long from, long to) {
+            this.channel = channel;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            try {
+                if (to - from > segmentSize) {
+                    long middle = from + (to - from) / 2;
+                    SegmentTask second = new SegmentTask(channel, middle, to);
+                    second.fork();
+                    long[] counts = new SegmentTask(channel, from, middle).compute();
+                    long[] other = second.join();
+                    for (int i = 0; i < counts.length; i++)
+                        counts[i] += other[i];
+                    return counts;
+                }
+                return parse(channel, nextBoundary(channel, from), nextBoundary(channel, to));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Разбирает партии между двумя границами
+     * @param channel канал файла
+     * @param start смещение первой партии
+     * @param end смещение после последней партии
+     * @return число партий, полуходов и партий с ошибками
+     * @throws IOException при ошибке чтения файла
+     */
+    private long[] parse(FileChannel channel, long start, long end) throws IOException {
+        long[] counts = new long[3];
+        if (start >= end)
+            return counts;
+        if (end - start > Integer.MAX_VALUE)
+            throw new IOException("Между границами партий больше 2 ГБ, файл нельзя разделить.");
+
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        PgnReader reader = new PgnReader(buffer);
+        while (reader.nextGame()) {
+            counts[0]++;
+            try {
+                counts[1] += reader.replayGame().getPlyCount();
+            } catch (IllegalArgumentException e) {
+                counts[2]++;
+                if (reportedErrors.incrementAndGet() <= maxReportedErrors)
+                    System.err.println("Смещение " + start + ": " + e.getMessage());
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Находит первую границу партии не раньше смещения
+     * @param channel канал файла
+     * @param offset смещение
+     * @return смещение символа "[" первого тега партии или размер файла, если границ дальше нет
+     * @throws IOException при ошибке чтения файла
+     */
+    private static long nextBoundary(FileChannel channel, long offset) throws IOException {
+        long size = channel.size();
+        if (offset <= 0 || offset >= size)
+            return Math.min(Math.max(offset, 0), size);
+
+        // Окно начинается на два символа раньше, чтобы проверить пустую строку перед тегом
+        long position = Math.max(0, offset - 3);
+        while (position < size) {
+            long length = Math.min(scanWindow, size - position);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            for (int i = (int) (offset - position); i < length; i++) {
+                if (window.get(i) == '[' && isGameStart(window, i))
+                    return position + i;
+            }
+            if (position + length >= size)
+                break;
+            // Следующее окно перекрывает конец текущего, чтобы не потерять пустую строку на стыке
+            offset = position + length;
+            position = offset - 3;
+        }
+        return size;
+    }
+
+    /**
+     * Проверяет, что "[" стоит в начале строки после пустой строки
+     * @param window окно файла
+     * @param index индекс символа "[" в окне
+     * @return true если здесь начинается партия
+     */
+    private static boolean isGameStart(MappedByteBuffer window, int index) {
+        if (index < 2 || window.get(index - 1) != '\n')
+            return false;
+        int previous = index - 2;
+        if (window.get(previous) == '\r')
+            previous--;
+        return previous >= 0 && window.get(previous) == '\n';
+    }
+
+    /**
+     * Импортирует файл PGN и печатает число партий и скорость.
+     * Запуск: java org.example.PgnImporter файл.pgn [потоки]
+     * @param args путь к файлу и число потоков
+     * @throws IOException при ошибке чтения файла
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Укажите файл PGN.");
+            return;
+        }
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        PgnImporter importer = new PgnImporter(Paths.get(args[0]));
+        importer.run(threads);
+        System.out.printf("Потоков %d: партий %d, полуходов %d, ошибок %d за %.3f с (%.0f партий/с)%n",
+                threads, importer.getGames(), importer.getPlies(), importer.getErrors(),
+                importer.getSeconds(), importer.getGamesPerSecond());
+    }
+}
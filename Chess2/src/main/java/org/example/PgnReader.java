@@ -0,0 +1,475 @@
+package org.example;
+
+import org.example.engine.MoveList;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Потоковое чтение партий в формате PGN.
+ * Партии читаются по одной: nextGame переходит к следующей партии и читает ее теги,
+ * nextSan выдает ходы по одному, replayGame разыгрывает всю партию на Pieces.
+ * Читатель держит в памяти только буфер ввода, теги и запись текущего хода,
+ * поэтому размер файла не ограничен. Комментарии, варианты, NAG и номера ходов пропускаются.
+ * Партия без тегов и без результата (как в файлах, сохраненных из игры) тоже читается.
+ * Из ByteBuffer байты читаются как ASCII, значения тегов декодируются из UTF-8.
+ * Объект не потокобезопасен.
+ */
+public class PgnReader implements Closeable {
+
+    private static final int bufferSize = 1 << 16;
+    private static final int none = -2;
+    private static final int endOfInput = -1;
+
+    private final Reader reader;
+    private final ByteBuffer bytes;
+    private final char[] chars;
+    private int position;
+    private int limit;
+    private int pending = none;
+
+    private final LinkedHashMap<String, String> tags = new LinkedHashMap<>();
+    private final StringBuilder token = new StringBuilder();
+    private final MoveList moves = new MoveList();
+    private boolean inMoves;
+    private String result;
+    private long gameNumber;
+    private long line = 1;
+
+    /**
+     * Конструктор чтения из символьного потока
+     * @param reader поток с партиями PGN
+     */
+    public PgnReader(Reader reader) {
+        this.reader = Objects.requireNonNull(reader, "Поток не может быть null.");
+        this.bytes = null;
+        this.chars = new char[bufferSize];
+    }
+
+    /**
+     * Конструктор чтения из буфера байтов, например из отображенного в память файла.
+     * Читаются байты от текущей позиции до границы буфера, позиция буфера сдвигается
+     * @param buffer буфер с партиями PGN
+     */
+    public PgnReader(ByteBuffer buffer) {
+        this.reader = null;
+        this.bytes = Objects.requireNonNull(buffer, "Буфер не может быть null.");
+        this.chars = null;
+    }
+
+    /**
+     * Переходит к следующей партии и читает ее теги.
+     * Непрочитанные ходы текущей партии пропускаются
+     * @return true если партия найдена, false если ввод закончился
+     * @throws IOException при ошибке чтения
+     */
+    public boolean nextGame() throws IOException {
+        while (inMoves)
+            nextSan(true);
+
+        tags.clear();
+        result = null;
+        int c = skipSpaceAndComments();
+        while (c == '[') {
+            read();
+            readTag();
+            c = skipSpaceAndComments();
+        }
+        if (c == endOfInput && tags.isEmpty())
+            return false;
+
+        gameNumber++;
+        inMoves = true;
+        return true;
+    }
+
+    /**
+     * Получает следующий ход текущей партии.
+     * Запись действительна до следующего вызова метода читателя
+     * @return запись хода в SAN или null, если ходы партии закончились
+     * @throws IOException при ошибке чтения
+     * @throws IllegalArgumentException если в записи ходов лишняя закрывающая скобка;
+     * символ снимается с ввода, остаток партии пропускается при следующем nextGame
+     */
+    public CharSequence nextSan() throws IOException {
+        return nextSan(false);
+    }
+
+    /**
+     * Получает следующий ход текущей партии
+     * @param skipping пропускаются ли ходы: тогда лишние символы снимаются с ввода без ошибки
+     * @return запись хода в SAN или null, если ходы партии закончились
+     * @throws IOException при ошибке чтения
+     */
+    private CharSequence nextSan(boolean skipping) throws IOException {
+        while (inMoves) {
+            int c = skipSpaceAndComments();
+            if (c == endOfInput || c == '[') {
+                // Следующая партия началась без результата текущей
+                finishGame("*");
+                return null;
+            }
+            if (c == '(') {
+                read();
+                skipVariation();
+                continue;
+            }
+            if (c == '$') {
+                read();
+                while (Character.isDigit(peek()))
+                    read();
+                continue;
+            }
+
+            readToken();
+            if (token.length() == 0) {
+                // Закрывающая скобка без открывающей: снимаем ее, иначе ввод не сдвинется
+                read();
+                if (skipping)
+                    continue;
+                throw new IllegalArgumentException("Партия " + gameNumber + ", строка " + line
+                        + ": лишний символ '" + (char) c + "' в записи ходов.");
+            }
+            if (isResult(token)) {
+                finishGame(token.toString());
+                return null;
+            }
+
+            // Номер хода "12." или "12..." может быть записан слитно с ходом
+            int digits = 0;
+            while (digits < token.length() && Character.isDigit(token.charAt(digits)))
+                digits++;
+            int dots = digits;
+            while (dots < token.length() && token.charAt(dots) == '.')
+                dots++;
+            if (dots > digits || (digits == token.length() && digits > 0)) {
+                token.delete(0, dots);
+                if (token.length() == 0)
+                    continue;
+            }
+            return token;
+        }
+        return null;
+    }
+
+    /**
+     * Разыгрывает оставшиеся ходы текущей партии от начальной позиции или от позиции из тега FEN
+     * @return позиция после последнего хода с историей партии
+     * @throws IOException при ошибке чтения
+     * @throws IllegalArgumentException если ход недопустим; остаток партии пропускается при следующем nextGame
+     */
+    public Pieces replayGame() throws IOException {
+        String fen = tags.get("FEN");
+        Pieces pieces = fen == null ? new Pieces() : new Pieces(fen);
+        CharSequence san;
+        while ((san = nextSan()) != null) {
+            try {
+                pieces.playMove(ChessIO.parseSan(pieces, san, moves));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Партия " + gameNumber + ", строка " + line + ": " + e.getMessage(), e);
+            }
+        }
+        return pieces;
+    }
+
+    /**
+     * Получает значение тега текущей партии
+     * @param name имя тега, например "White" или "Result"
+     * @return значение тега или null, если тега нет
+     */
+    public String getTag(String name) {
+        return tags.get(name);
+    }
+
+    /**
+     * Получает все теги текущей партии в порядке записи
+     * @return неизменяемая карта имен и значений тегов
+     */
+    public Map<String, String> getTags() {
+        return Collections.unmodifiableMap(tags);
+    }
+
+    /**
+     * Получает результат текущей партии из записи ходов
+     * @return "1-0", "0-1", "1/2-1/2", "*" или null, если ходы партии еще не дочитаны
+     */
+    public String getResult() {
+        return result;
+    }
+
+    /**
+     * Получает номер текущей партии во вводе
+     * @return номер партии, начиная с 1
+     */
+    public long getGameNumber() {
+        return gameNumber;
+    }
+
+    /**
+     * Получает номер текущей строки ввода
+     * @return номер строки, начиная с 1
+     */
+    public long getLine() {
+        return line;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (reader != null)
+            reader.close();
+    }
+
+    /**
+     * Завершает чтение ходов текущей партии
+     * @param gameResult результат партии
+     */
+    private void finishGame(String gameResult) {
+        result = gameResult;
+        inMoves = false;
+    }
+
+    /**
+     * Проверяет, является ли запись результатом партии
+     * @param text запись
+     * @return true для "1-0", "0-1", "1/2-1/2" и "*"
+     */
+    private static boolean isResult(CharSequence text) {
+        switch (text.length()) {
+            case 1:
+                return text.charAt(0) == '*';
+            case 3:
+                return text.charAt(1) == '-' && ((text.charAt(0) == '1' && text.charAt(2) == '0')
+                        || (text.charAt(0) == '0' && text.charAt(2) == '1'));
+            case 7:
+                return "1/2-1/2".contentEquals(text);
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Читает запись до пробела или начала комментария, варианта или тега в token
+     * @throws IOException при ошибке чтения
+     */
+    private void readToken() throws IOException {
+        token.setLength(0);
+        int c = peek();
+        while (c != endOfInput && !Character.isWhitespace(c) && "{}();[]$".indexOf(c) < 0) {
+            token.append((char) read());
+            c = peek();
+        }
+    }
+
+    /**
+     * Читает тег после открывающей скобки: имя и значение в кавычках
+     * @throws IOException при ошибке чтения
+     */
+    private void readTag() throws IOException {
+        token.setLength(0);
+        int c = skipSpaces();
+        while (c != endOfInput && !Character.isWhitespace(c) && c != '"' && c != ']') {
+            token.append((char) read());
+            c = peek();
+        }
+        String name = token.toString();
+
+        c = skipSpaces();
+        token.setLength(0);
+        if (c == '"') {
+            read();
+            c = read();
+            while (c != endOfInput && c != '"' && c != '\n') {
+                if (c == '\\')
+                    c = read();
+                token.append((char) c);
+                c = read();
+            }
+        }
+        c = peek();
+        while (c != endOfInput && c != ']' && c != '\n') {
+            read();
+            c = peek();
+        }
+        if (c == ']')
+            read();
+        tags.put(name, tagValue());
+    }
+
+    /**
+     * Получает прочитанное значение тега. Байты из ByteBuffer декодируются из UTF-8
+     * @return значение тега
+     */
+    private String tagValue() {
+        if (bytes == null)
+            return token.toString();
+        for (int i = 0; i < token.length(); i++) {
+            if (token.charAt(i) > 0x7F) {
+                byte[] raw = new byte[token.length()];
+                for (int j = 0; j < raw.length; j++)
+                    raw[j] = (byte) token.charAt(j);
+                return new String(raw, StandardCharsets.UTF_8);
+            }
+        }
+        return token.toString();
+    }
+
+    /**
+     * Пропускает вариант в скобках вместе с вложенными вариантами и комментариями
+     * @throws IOException при ошибке чтения
+     */
+    private void skipVariation() throws IOException {
+        int depth = 1;
+        while (depth > 0) {
+            int c = read();
+            switch (c) {
+                case endOfInput:
+                    return;
+                case '(':
+                    depth++;
+                    break;
+                case ')':
+                    depth--;
+                    break;
+                case '{':
+                    skipUntil('}');
+                    break;
+                case ';':
+                    skipUntil('\n');
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Пропускает пробелы, комментарии в фигурных скобках, комментарии до конца строки и строки "%"
+     * @return следующий символ, не снятый с ввода, или endOfInput
+     * @throws IOException при ошибке чтения
+     */
+    private int skipSpaceAndComments() throws IOException {
+        while (true) {
+            int c = skipSpaces();
+            if (c == '{') {
+                read();
+                skipUntil('}');
+            }
+            else if (c == ';' || c == '%') {
+                read();
+                skipUntil('\n');
+            }
+            else
+                return c;
+        }
+    }
+
+    /**
+     * Пропускает пробельные символы
+     * @return следующий символ, не снятый с ввода, или endOfInput
+     * @throws IOException при ошибке чтения
+     */
+    private int skipSpaces() throws IOException {
+        int c = peek();
+        while (c != endOfInput && Character.isWhitespace(c)) {
+            read();
+            c = peek();
+        }
+        return c;
+    }
+
+    /**
+     * Пропускает ввод до указанного символа включительно
+     * @param stop символ остановки
+     * @throws IOException при ошибке чтения
+     */
+    private void skipUntil(char stop) throws IOException {
+        int c = read();
+        while (c != endOfInput && c != stop)
+            c = read();
+    }
+
+    /**
+     * Получает следующий символ, не снимая его с ввода
+     * @return символ или endOfInput
+     * @throws IOException при ошибке чтения
+     */
+    private int peek() throws IOException {
+        if (pending == none)
+            pending = next();
+        return pending;
+    }
+
+    /**
+     * Снимает следующий символ с ввода
+     * @return символ или endOfInput
+     * @throws IOException при ошибке чтения
+     */
+    private int read() throws IOException {
+        int c = pending == none ? next() : pending;
+        pending = none;
+        if (c == '\n')
+            line++;
+        return c;
+    }
+
+    /**
+     * Читает символ из буфера, пополняя его из потока
+     * @return символ или endOfInput
+     * @throws IOException при ошибке чтения
+     */
+    private int next() throws IOException {
+        if (bytes != null)
+            return bytes.hasRemaining() ? bytes.get() & 0xFF : endOfInput;
+        if (position == limit) {
+            limit = reader.read(chars, 0, chars.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return endOfInput;
+            }
+        }
+        return chars[position++];
+    }
+
+    /**
+     * Разыгрывает все партии файла PGN и печатает число партий и ходов.
+     * Запуск: java org.example.PgnReader файл.pgn
+     * @param args путь к файлу
+     * @throws IOException при ошибке чтения файла
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Укажите файл PGN.");
+            return;
+        }
+
+        long games = 0;
+        long plies = 0;
+        long errors = 0;
+        long start = System.nanoTime();
+        Path file = Paths.get(args[0]);
+        try (PgnReader pgn = new PgnReader(Files.newBufferedReader(file, StandardCharsets.UTF_8))) {
+            while (pgn.nextGame()) {
+                games++;
+                try {
+                    plies += pgn.replayGame().getPlyCount();
+                } catch (IllegalArgumentException e) {
+                    errors++;
+                    System.err.println(e.getMessage());
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Партий: %d, полуходов: %d, ошибок: %d, время %.3f с%n", games, plies, errors, seconds);
+    }
+}
@@ -20,6 +20,10 @@ public abstract class Piece{
     private final Coordinate OGcoord;
     private final String pieceID;
     private HashSet<Coordinate> potentialMoves = new HashSet<>();
+    private Pieces movesOwner;
+    private long movesVersion;
+    private long movesMask;
+    private long targetMask;
     public int dimension = BOARD.LAST_RANK.getRankVal();
     public int single = BOARD.FIRST_RANK.getRankVal();
     private boolean hasMoved = false;
@@ -52,15 +56,10 @@ public abstract class Piece{
         Objects.requireNonNull(original,"Нельзя создать копию из null объекта");
         this.name = original.name;
         this.colour = original.colour;
-        this.OGcoord = new Coordinate(original.OGcoord);
-        this.coords = new Coordinate(original.coords);
+        this.OGcoord = original.OGcoord;
+        this.coords = original.coords;
         this.pieceID = original.pieceID;
         this.potentialMoves = new HashSet<>();
-
-        for (Coordinate coord : original.getPotentialMoves()) {
-            this.potentialMoves.add(new Coordinate(coord));
-        }
-
         this.dimension = original.dimension;
         this.single = original.single;
         this.hasMoved = original.hasMoved;
@@ -141,6 +140,12 @@ public abstract class Piece{
      */
     public void setHasMoved() {hasMoved = true;}
 
+    /**
+     * Устанавливает флаг хода фигуры, например при отмене хода
+     * @param hasMoved true если фигура уже делала ход
+     */
+    public void setHasMoved(boolean hasMoved) {this.hasMoved = hasMoved;}
+
     /**
      * Добавляет возможные ходы к списку потенциальных ходов
      * @param someMoves список координат для добавления
@@ -154,16 +159,76 @@ public abstract class Piece{
      */
     public void clearMoves() {
         potentialMoves.clear();
+        movesOwner = null;
     }
 
     /**
-     * Получает множество потенциальных ходов фигуры
+     * Получает множество потенциальных ходов фигуры в том виде, в каком оно было вычислено последним.
+     * Для актуальных ходов используется getPotentialMoves(Pieces)
      * @return множество координат возможных ходов
      */
     public HashSet<Coordinate> getPotentialMoves() {
         return potentialMoves;
     }
 
+    /**
+     * Получает множество потенциальных ходов фигуры в текущей позиции.
+     * Ходы вычисляются при первом запросе и хранятся, пока не изменится версия позиции
+     * @param pieces текущее состояние доски
+     * @return множество координат возможных ходов
+     */
+    public HashSet<Coordinate> getPotentialMoves(Pieces pieces) {
+        long version = pieces.getVersion();
+        if (movesOwner != pieces || movesVersion != version) {
+            clearMoves();
+            updatePotentialMoves(pieces);
+            movesOwner = pieces;
+            movesVersion = version;
+            movesMask = pieces.reachMask(this);
+            targetMask = 0L;
+            for (Coordinate target : potentialMoves)
+                targetMask |= Bitboards.bit(Bitboards.square(target));
+        }
+        return potentialMoves;
+    }
+
+    /**
+     * Получает поля потенциальных ходов фигуры в текущей позиции одним числом.
+     * Пока ходы не устарели, вызов ничего не выделяет, поэтому подходит для перебора в поиске
+     * @param pieces текущее состояние доски
+     * @return маска полей назначения
+     */
+    public long getTargets(Pieces pieces) {
+        getPotentialMoves(pieces);
+        return targetMask;
+    }
+
+    /**
+     * Проверяет, вычислены ли ходы фигуры для указанной версии позиции
+     * @param pieces позиция
+     * @param version версия позиции
+     * @return true если хранящиеся ходы относятся к этой версии
+     */
+    boolean hasMovesAt(Pieces pieces, long version) {
+        return movesOwner == pieces && movesVersion == version;
+    }
+
+    /**
+     * Оставляет вычисленные ходы фигуры действительными для новой версии позиции
+     * @param version новая версия позиции
+     */
+    void keepMoves(long version) {
+        movesVersion = version;
+    }
+
+    /**
+     * Получает маску полей, от которых зависели ходы при последнем вычислении
+     * @return маска полей из Pieces.reachMask
+     */
+    long getMovesMask() {
+        return movesMask;
+    }
+
     /**
      * Удаляет из списка возможных ходов те, которые оставляют короля под шахом
      * @param pieces текущее состояние доски
@@ -180,11 +245,11 @@ public abstract class Piece{
 
         while (it.hasNext()) {
             Coordinate nextMove = it.next();
-            Pieces p = new Pieces(pieces);
-            p.pieceMove(nextMove, this.makeCopy());
-            Coordinate kingPosition = p.findKing(getColour());
-            HashSet<Coordinate> dangerMoves = p.allColouredRaws(COLOUR.not(getColour()));
-            if (dangerMoves.contains(kingPosition))
+            MoveUndo undo = pieces.make(nextMove, this);
+            long king = pieces.getBitboard(getColour(), ID.KING);
+            boolean ownCheck = king != 0 && pieces.isSquareAttacked(Long.numberOfTrailingZeros(king), COLOUR.not(getColour()));
+            pieces.unmake(undo);
+            if (ownCheck)
                 it.remove();
         }
 
@@ -201,12 +266,13 @@ public abstract class Piece{
 
     /**
      * Проверяет, является ли ход валидным для данной фигуры
+     * @param pieces текущее состояние доски
      * @param destination координата назначения
      * @param colour цвет фигуры, делающей ход
      * @return true если ход валиден
      */
-    public boolean isValidMove(Coordinate destination, COLOUR colour) {
-        return getPotentialMoves().contains(destination) && getColour() == colour;
+    public boolean isValidMove(Pieces pieces, Coordinate destination, COLOUR colour) {
+        return getColour() == colour && getPotentialMoves(pieces).contains(destination);
     }
 
     @Override
@@ -0,0 +1,162 @@
+package org.example;
+
+
+import org.example.COLOUR;
+import org.example.ID;
+
+/**
+ * Стоимость фигур и таблицы их положения для миттельшпиля и эндшпиля.
+ * Значения уже включают материал и хранятся со знаком: плюс для белых, минус для черных,
+ * поэтому оценка позиции складывается из значений всех фигур без проверок цвета.
+ * Pieces поддерживает эти суммы при каждой постановке и снятии фигуры.
+ */
+public class PieceSquareTables {
+
+    /** Фаза полной доски: сумма весов всех фигур, кроме пешек и королей */
+    public static final int MAX_PHASE = 24;
+
+    /** Вес фигуры в фазе игры по ID.ordinal() */
+    private static final int[] phaseWeights = {0, 4, 2, 1, 1, 0};
+    /** Стоимость фигуры в миттельшпиле по ID.ordinal() */
+    private static final int[] midgameValues = {0, 1025, 477, 365, 337, 82};
+    /** Стоимость фигуры в эндшпиле по ID.ordinal() */
+    private static final int[] endgameValues = {0, 936, 512, 297, 281, 94};
+
+    // Таблицы записаны с точки зрения белых: первая строка - восьмая горизонталь
+    private static final int[] kingMidgame = {
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -20, -30, -30, -40, -40, -30, -30, -20,
+            -10, -20, -20, -20, -20, -20, -20, -10,
+             20,  20,   0,   0,   0,   0,  20,  20,
+             20,  30,  10,   0,   0,  10,  30,  20};
+    private static final int[] kingEndgame = {
+            -50, -40, -30, -20, -20, -30, -40, -50,
+            -30, -20, -10,   0,   0, -10, -20, -30,
+            -30, -10,  20,  30,  30,  20, -10, -30,
+            -30, -10,  30,  40,  40,  30, -10, -30,
+            -30, -10,  30,  40,  40,  30, -10, -30,
+            -30, -10,  20,  30,  30,  20, -10, -30,
+            -30, -30,   0,   0,   0,   0, -30, -30,
+            -50, -30, -30, -30, -30, -30, -30, -50};
+    private static final int[] queenTable = {
+            -20, -10, -10,  -5,  -5, -10, -10, -20,
+            -10,   0,   0,   0,   0,   0,   0, -10,
+            -10,   0,   5,   5,   5,   5,   0, -10,
+             -5,   0,   5,   5,   5,   5,   0,  -5,
+              0,   0,   5,   5,   5,   5,   0,  -5,
+            -10,   5,   5,   5,   5,   5,   0, -10,
+            -10,   0,   5,   0,   0,   0,   0, -10,
+            -20, -10, -10,  -5,  -5, -10, -10, -20};
+    private static final int[] rookTable = {
+              0,   0,   0,   0,   0,   0,   0,   0,
+              5,  10,  10,  10,  10,  10,  10,   5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+              0,   0,   0,   5,   5,   0,   0,   0};
+    private static final int[] bishopTable = {
+            -20, -10, -10, -10, -10, -10, -10, -20,
+            -10,   0,   0,   0,   0,   0,   0, -10,
+            -10,   0,   5,  10,  10,   5,   0, -10,
+            -10,   5,   5,  10,  10,   5,   5, -10,
+            -10,   0,  10,  10,  10,  10,   0, -10,
+            -10,  10,  10,  10,  10,  10,  10, -10,
+            -10,   5,   0,   0,   0,   0,   5, -10,
+            -20, -10, -10, -10, -10, -10, -10, -20};
+    private static final int[] knightTable = {
+            -50, -40, -30, -30, -30, -30, -40, -50,
+            -40, -20,   0,   0,   0,   0, -20, -40,
+            -30,   0,  10,  15,  15,  10,   0, -30,
+            -30,   5,  15,  20,  20,  15,   5, -30,
+            -30,   0,  15,  20,  20,  15,   0, -30,
+            -30,   5,  10,  15,  15,  10,   5, -30,
+            -40, -20,   0,   5,   5,   0, -20, -40,
+            -50, -40, -30, -30, -30, -30, -40, -50};
+    private static final int[] pawnMidgame = {
+              0,   0,   0,   0,   0,   0,   0,   0,
+             50,  50,  50,  50,  50,  50,  50,  50,
+             10,  10,  20,  30,  30,  20,  10,  10,
+              5,   5,  10,  25,  25,  10,   5,   5,
+              0,   0,   0,  20,  20,   0,   0,   0,
+              5,  -5, -10,   0,   0, -10,  -5,   5,
+              5,  10,  10, -20, -20,  10,  10,   5,
+              0,   0,   0,   0,   0,   0,   0,   0};
+    private static final int[] pawnEndgame = {
+              0,   0,   0,   0,   0,   0,   0,   0,
+             80,  80,  80,  80,  80,  80,  80,  80,
+             50,  50,  50,  50,  50,  50,  50,  50,
+             30,  30,  30,  30,  30,  30,  30,  30,
+             20,  20,  20,  20,  20,  20,  20,  20,
+             10,  10,  10,  10,  10,  10,  10,  10,
+             10,  10,  10,  10,  10,  10,  10,  10,
+              0,   0,   0,   0,   0,   0,   0,   0};
+
+    private static final int[][] midgameTables = {kingMidgame, queenTable, rookTable, bishopTable, knightTable, pawnMidgame};
+    private static final int[][] endgameTables = {kingEndgame, queenTable, rookTable, bishopTable, knightTable, pawnEndgame};
+
+    private static final int[][] midgame = new int[2 * Bitboards.TYPES][Bitboards.SQUARES];
+    private static final int[][] endgame = new int[2 * Bitboards.TYPES][Bitboards.SQUARES];
+
+    static {
+        for (ID type : ID.values()) {
+            for (int square = 0; square < Bitboards.SQUARES; square++) {
+                int file = square % Bitboards.FILES;
+                int rank = square / Bitboards.FILES;
+                int whiteIndex = (Bitboards.RANKS - 1 - rank) * Bitboards.FILES + file;
+                int blackIndex = rank * Bitboards.FILES + file;
+                int t = type.ordinal();
+
+                midgame[Bitboards.index(COLOUR.W, type)][square] = midgameValues[t] + midgameTables[t][whiteIndex];
+                endgame[Bitboards.index(COLOUR.W, type)][square] = endgameValues[t] + endgameTables[t][whiteIndex];
+                midgame[Bitboards.index(COLOUR.B, type)][square] = -(midgameValues[t] + midgameTables[t][blackIndex]);
+                endgame[Bitboards.index(COLOUR.B, type)][square] = -(endgameValues[t] + endgameTables[t][blackIndex]);
+            }
+        }
+    }
+
+    /**
+     * Получает значение фигуры на поле в миттельшпиле
+     * @param colour цвет фигуры
+     * @param name тип фигуры
+     * @param square индекс поля
+     * @return материал и бонус за положение, положительные для белых
+     */
+    public static int midgame(COLOUR colour, ID name, int square) {
+        return midgame[Bitboards.index(colour, name)][square];
+    }
+
+    /**
+     * Получает значение фигуры на поле в эндшпиле
+     * @param colour цвет фигуры
+     * @param name тип фигуры
+     * @param square индекс поля
+     * @return материал и бонус за положение, положительные для белых
+     */
+    public static int endgame(COLOUR colour, ID name, int square) {
+        return endgame[Bitboards.index(colour, name)][square];
+    }
+
+    /**
+     * Получает стоимость фигуры для размена и упорядочивания ходов.
+     * Берется материал миттельшпиля, чтобы SEE и сортировка взятий считали в той же шкале, что и оценка
+     * @param name тип фигуры
+     * @return стоимость в сантипешках, 0 для короля
+     */
+    public static int value(ID name) {
+        return midgameValues[name.ordinal()];
+    }
+
+    /**
+     * Получает вес фигуры в фазе игры
+     * @param name тип фигуры
+     * @return вес фигуры, 0 для пешек и королей
+     */
+    public static int phase(ID name) {
+        return phaseWeights[name.ordinal()];
+    }
+}
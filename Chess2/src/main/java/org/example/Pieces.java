@@ -17,20 +17,71 @@ import java.util.*;
  */
 public class Pieces {
 
+    /** Право белых на короткую рокировку */
+    public static final int WHITE_KINGSIDE = 1;
+    /** Право белых на длинную рокировку */
+    public static final int WHITE_QUEENSIDE = 2;
+    /** Право черных на короткую рокировку */
+    public static final int BLACK_KINGSIDE = 4;
+    /** Право черных на длинную рокировку */
+    public static final int BLACK_QUEENSIDE = 8;
+
+    private static final int[] castlingMask = new int[Bitboards.SQUARES];
+    private static final int initialHistoryCapacity = 64;
+
+    /** Обозначения фигур в FEN по ID.ordinal(), строчные для черных */
+    private static final String fenSymbols = "kqrbnp";
+    private static final ID[] types = ID.values();
+
+    static {
+        Arrays.fill(castlingMask, WHITE_KINGSIDE | WHITE_QUEENSIDE | BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        int whiteRank = BOARD.FIRST_RANK.getRankVal();
+        int blackRank = BOARD.LAST_RANK.getRankVal();
+        castlingMask[Bitboards.square(BOARD.FIRST_FILE.getFileVal(), whiteRank)] &= ~WHITE_QUEENSIDE;
+        castlingMask[Bitboards.square(BOARD.LAST_FILE.getFileVal(), whiteRank)] &= ~WHITE_KINGSIDE;
+        castlingMask[Bitboards.square('e', whiteRank)] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        castlingMask[Bitboards.square(BOARD.FIRST_FILE.getFileVal(), blackRank)] &= ~BLACK_QUEENSIDE;
+        castlingMask[Bitboards.square(BOARD.LAST_FILE.getFileVal(), blackRank)] &= ~BLACK_KINGSIDE;
+        castlingMask[Bitboards.square('e', blackRank)] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+    }
+
     private HashMap<Coordinate, Piece> pieces;
-    private HashMap<Coordinate, Piece> previousPieces;
+    private boolean mapDirty;
+    private final Piece[] board = new Piece[Bitboards.SQUARES];
+    private final long[] bitboards = new long[2 * Bitboards.TYPES];
+    private final long[] colourBitboards = new long[2];
+    private long occupied;
+    private int castlingRights;
+    private int enPassantSquare = Bitboards.NO_SQUARE;
+    private COLOUR sideToMove = COLOUR.W;
+    private int halfmoveClock;
+    private int fullmoveNumber = 1;
+    private long key;
+    private long pawnKey;
+    private int midgameScore;
+    private int endgameScore;
+    private int phase;
+    private long version;
+    private long versionCounter;
     private boolean isCapture;
     private boolean isGUIGame;
-    private ArrayList<HashMap<Coordinate,Piece>> gameProgress = new ArrayList<>();
+    private HashMap<Coordinate, Piece> initialBoard;
+    private String initialFen;
+    private int[] moveHistory = new int[initialHistoryCapacity];
+    private long[] keyHistory = new long[initialHistoryCapacity + 1];
+    private int plyCount;
+    private RepetitionTracker repetitions = new RepetitionTracker();
 
     /**
      * Конструктор, создающий начальную позицию доски
      */
     public Pieces() {
         pieces = Boards.getChessBoard();
-        previousPieces = copyHashMap(pieces);
-        gameProgress.add(copyHashMap(pieces));
-        updatePotentials();
+        indexBoard();
+        initCastlingRights();
+        initialBoard = copyHashMap(pieces);
+        keyHistory[0] = key;
+        repetitions.add(key);
     }
 
     /**
@@ -39,59 +90,399 @@ public class Pieces {
      */
     public Pieces(HashMap<Coordinate, Piece> newBoard) {
         pieces = newBoard;
-        previousPieces = copyHashMap(pieces);
-        gameProgress.add(copyHashMap(pieces));
-        updatePotentials();
+        indexBoard();
+        initCastlingRights();
+        initialBoard = copyHashMap(pieces);
+        keyHistory[0] = key;
+        repetitions.add(key);
     }
 
     /**
-     * Конструктор копирования
+     * Конструктор копирования. Фигуры берутся из массива полей оригинала,
+     * его карта фигур не перестраивается, поэтому оригинал только читается
      * @param original оригинальный объект Pieces для копирования
      */
     public Pieces (Pieces original) {
-        this.pieces = copyHashMap(original.getPieces());
-        this.previousPieces = original.previousPieces;
+        this.pieces = new HashMap<>();
+        long remaining = original.occupied;
+        while (remaining != 0) {
+            int square = Long.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1;
+            pieces.put(Bitboards.toCoordinate(square), original.board[square].makeCopy());
+        }
+        indexBoard();
+        this.castlingRights = original.castlingRights;
+        this.enPassantSquare = original.enPassantSquare;
+        this.sideToMove = original.sideToMove;
+        this.halfmoveClock = original.halfmoveClock;
+        this.fullmoveNumber = original.fullmoveNumber;
+        this.key = original.key;
         this.isCapture = original.isCapture;
         this.isGUIGame = original.isGUIGame;
-        this.gameProgress = copyArrayHash(original.getGameProgress());
+        this.initialBoard = original.initialBoard;
+        this.initialFen = original.initialFen;
+        this.moveHistory = original.moveHistory.clone();
+        this.keyHistory = original.keyHistory.clone();
+        this.plyCount = original.plyCount;
+        this.repetitions = new RepetitionTracker(original.repetitions);
+    }
+
+    /**
+     * Конструктор позиции из записи FEN: расстановка, очередь хода, права на рокировку,
+     * поле взятия на проходе, счетчик полуходов и номер хода. Два последних поля можно опустить.
+     * Фигуры сразу ставятся в массив полей и битовые доски, карта фигур строится только при запросе.
+     * Поле взятия на проходе запоминается, только если рядом стоит пешка, которая может взять, как и в make
+     * @param fen запись позиции
+     * @throws IllegalArgumentException если запись некорректна
+     */
+    public Pieces(String fen) {
+        Objects.requireNonNull(fen, "Запись FEN не может быть null.");
+        pieces = new HashMap<>();
+        indexBoard();
+
+        int index = parsePlacement(fen);
+
+        index = skipSpaces(fen, index);
+        if (index >= fen.length() || (fen.charAt(index) != 'w' && fen.charAt(index) != 'b'))
+            throw new IllegalArgumentException("В записи FEN не указана очередь хода: " + fen);
+        if (fen.charAt(index++) == 'b') {
+            key ^= Zobrist.side(sideToMove) ^ Zobrist.side(COLOUR.B);
+            sideToMove = COLOUR.B;
+        }
+
+        index = skipSpaces(fen, index);
+        int rights = 0;
+        if (index < fen.length() && fen.charAt(index) == '-')
+            index++;
+        else {
+            for (; index < fen.length() && fen.charAt(index) != ' '; index++) {
+                switch (fen.charAt(index)) {
+                    case 'K': rights |= WHITE_KINGSIDE; break;
+                    case 'Q': rights |= WHITE_QUEENSIDE; break;
+                    case 'k': rights |= BLACK_KINGSIDE; break;
+                    case 'q': rights |= BLACK_QUEENSIDE; break;
+                    default:
+                        throw new IllegalArgumentException("Неизвестное право на рокировку в записи FEN: " + fen);
+                }
+            }
+        }
+        markMovedPieces(rights);
+        initCastlingRights();
+
+        index = skipSpaces(fen, index);
+        if (index < fen.length() && fen.charAt(index) != '-') {
+            int square = index + 1 < fen.length() ? Bitboards.square(fen.charAt(index), fen.charAt(index + 1) - '0') : Bitboards.NO_SQUARE;
+            int expectedRank = sideToMove == COLOUR.W ? BOARD.LAST_RANK.getRankVal() - 2 : BOARD.FIRST_RANK.getRankVal() + 2;
+            if (square == Bitboards.NO_SQUARE || Bitboards.rankOf(square) != expectedRank)
+                throw new IllegalArgumentException("Неверное поле взятия на проходе в записи FEN: " + fen);
+            if ((Bitboards.PAWN_ATTACKS[COLOUR.not(sideToMove).ordinal()][square] & getBitboard(sideToMove, ID.PAWN)) != 0) {
+                enPassantSquare = square;
+                key ^= Zobrist.enPassant(square);
+            }
+            index += 2;
+        }
+        else
+            index++;
+
+        index = skipSpaces(fen, index);
+        if (index < fen.length()) {
+            int end = numberEnd(fen, index);
+            halfmoveClock = Integer.parseInt(fen, index, end, 10);
+            index = skipSpaces(fen, end);
+            if (index < fen.length()) {
+                end = numberEnd(fen, index);
+                fullmoveNumber = Integer.parseInt(fen, index, end, 10);
+                index = skipSpaces(fen, end);
+            }
+        }
+        if (index < fen.length())
+            throw new IllegalArgumentException("Лишние символы в записи FEN: " + fen);
+
+        mapDirty = true;
+        initialFen = fen;
+        keyHistory[0] = key;
+        repetitions.add(key);
+    }
+
+    /**
+     * Расставляет фигуры по первому полю записи FEN
+     * @param fen запись позиции
+     * @return индекс символа после расстановки
+     * @throws IllegalArgumentException если расстановка некорректна
+     */
+    private int parsePlacement(String fen) {
+        char firstFile = BOARD.FIRST_FILE.getFileVal();
+        char lastFile = BOARD.LAST_FILE.getFileVal();
+        int rank = BOARD.LAST_RANK.getRankVal();
+        char file = firstFile;
+
+        int index = 0;
+        for (; index < fen.length() && fen.charAt(index) != ' '; index++) {
+            char symbol = fen.charAt(index);
+            if (symbol == '/') {
+                if (file != lastFile + 1 || rank == BOARD.FIRST_RANK.getRankVal())
+                    throw new IllegalArgumentException("Неверная горизонталь в записи FEN: " + fen);
+                rank--;
+                file = firstFile;
+            }
+            else if (symbol >= '1' && symbol <= '8')
+                file += symbol - '0';
+            else {
+                int type = fenSymbols.indexOf(Character.toLowerCase(symbol));
+                int square = Bitboards.square(file, rank);
+                if (type < 0 || square == Bitboards.NO_SQUARE)
+                    throw new IllegalArgumentException("Неверная расстановка в записи FEN: " + fen);
+                COLOUR colour = Character.isUpperCase(symbol) ? COLOUR.W : COLOUR.B;
+                setSquare(square, Boards.createPiece(types[type], colour, Bitboards.toCoordinate(square)));
+                file++;
+            }
+            if (file > lastFile + 1)
+                throw new IllegalArgumentException("Неверная горизонталь в записи FEN: " + fen);
+        }
+        if (file != lastFile + 1 || rank != BOARD.FIRST_RANK.getRankVal())
+            throw new IllegalArgumentException("В записи FEN не хватает полей: " + fen);
+        return index;
+    }
+
+    /**
+     * Отмечает ходившими пешки вне исходной горизонтали, а также королей и ладьи,
+     * у которых нет соответствующего права на рокировку
+     * @param rights права на рокировку из записи FEN
+     */
+    private void markMovedPieces(int rights) {
+        long remaining = occupied;
+        while (remaining != 0) {
+            int square = Long.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1;
+            Piece piece = board[square];
+            boolean white = piece.getColour() == COLOUR.W;
+            int homeRank = white ? BOARD.FIRST_RANK.getRankVal() : BOARD.LAST_RANK.getRankVal();
+            int kingside = white ? WHITE_KINGSIDE : BLACK_KINGSIDE;
+            int queenside = white ? WHITE_QUEENSIDE : BLACK_QUEENSIDE;
+
+            switch (piece.getName()) {
+                case PAWN:
+                    piece.setHasMoved(Bitboards.rankOf(square) != homeRank + (white ? 1 : -1));
+                    break;
+                case KING:
+                    piece.setHasMoved((rights & (kingside | queenside)) == 0);
+                    break;
+                case ROOK:
+                    boolean kingsideRook = square == Bitboards.square(BOARD.LAST_FILE.getFileVal(), homeRank);
+                    boolean queensideRook = square == Bitboards.square(BOARD.FIRST_FILE.getFileVal(), homeRank);
+                    piece.setHasMoved(!(kingsideRook && (rights & kingside) != 0)
+                            && !(queensideRook && (rights & queenside) != 0));
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Пропускает пробелы в записи
+     * @param text запись
+     * @param index индекс первого символа
+     * @return индекс первого символа, не являющегося пробелом
+     */
+    private static int skipSpaces(String text, int index) {
+        while (index < text.length() && text.charAt(index) == ' ')
+            index++;
+        return index;
+    }
+
+    /**
+     * Находит конец числа в записи
+     * @param text запись
+     * @param index индекс первой цифры
+     * @return индекс символа после числа
+     * @throws IllegalArgumentException если число отсутствует
+     */
+    private static int numberEnd(String text, int index) {
+        int end = index;
+        while (end < text.length() && Character.isDigit(text.charAt(end)))
+            end++;
+        if (end == index)
+            throw new IllegalArgumentException("Ожидалось число в записи FEN: " + text);
+        return end;
+    }
+
+    /**
+     * Получает запись позиции в нотации FEN
+     * @return запись FEN текущей позиции
+     */
+    public String toFen() {
+        StringBuilder fen = new StringBuilder(90);
+        for (int rank = BOARD.LAST_RANK.getRankVal(); rank >= BOARD.FIRST_RANK.getRankVal(); rank--) {
+            int empty = 0;
+            for (char file = BOARD.FIRST_FILE.getFileVal(); file <= BOARD.LAST_FILE.getFileVal(); file++) {
+                Piece piece = board[Bitboards.square(file, rank)];
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0)
+                    fen.append(empty);
+                empty = 0;
+                char symbol = fenSymbols.charAt(piece.getName().ordinal());
+                fen.append(piece.getColour() == COLOUR.W ? Character.toUpperCase(symbol) : symbol);
+            }
+            if (empty > 0)
+                fen.append(empty);
+            if (rank > BOARD.FIRST_RANK.getRankVal())
+                fen.append('/');
+        }
+
+        fen.append(sideToMove == COLOUR.W ? " w " : " b ");
+        if (castlingRights == 0)
+            fen.append('-');
+        if ((castlingRights & WHITE_KINGSIDE) != 0)
+            fen.append('K');
+        if ((castlingRights & WHITE_QUEENSIDE) != 0)
+            fen.append('Q');
+        if ((castlingRights & BLACK_KINGSIDE) != 0)
+            fen.append('k');
+        if ((castlingRights & BLACK_QUEENSIDE) != 0)
+            fen.append('q');
+
+        fen.append(' ');
+        if (enPassantSquare == Bitboards.NO_SQUARE)
+            fen.append('-');
+        else
+            fen.append(Bitboards.fileOf(enPassantSquare)).append(Bitboards.rankOf(enPassantSquare));
+        fen.append(' ').append(halfmoveClock).append(' ').append(fullmoveNumber);
+        return fen.toString();
+    }
+
+    /**
+     * Заполняет массив полей и битовые доски по карте фигур
+     */
+    private void indexBoard() {
+        Arrays.fill(board, null);
+        Arrays.fill(bitboards, 0L);
+        Arrays.fill(colourBitboards, 0L);
+        occupied = 0L;
+        pawnKey = 0L;
+        midgameScore = 0;
+        endgameScore = 0;
+        phase = 0;
+        key = Zobrist.side(sideToMove) ^ Zobrist.castling(castlingRights) ^ Zobrist.enPassant(enPassantSquare);
+        mapDirty = false;
+
+        for (Map.Entry<Coordinate, Piece> entry : pieces.entrySet()) {
+            int square = Bitboards.square(entry.getKey());
+            if (square == Bitboards.NO_SQUARE)
+                throw new IllegalArgumentException("Фигура " + entry.getValue() + " находится вне доски.");
+            setSquare(square, entry.getValue());
+        }
+    }
+
+    /**
+     * Определяет права на рокировку по положению и флагам hasMoved королей и ладей
+     */
+    private void initCastlingRights() {
+        int rights = 0;
+        if (canStillCastle(COLOUR.W, BOARD.FIRST_RANK.getRankVal(), BOARD.LAST_FILE.getFileVal()))
+            rights |= WHITE_KINGSIDE;
+        if (canStillCastle(COLOUR.W, BOARD.FIRST_RANK.getRankVal(), BOARD.FIRST_FILE.getFileVal()))
+            rights |= WHITE_QUEENSIDE;
+        if (canStillCastle(COLOUR.B, BOARD.LAST_RANK.getRankVal(), BOARD.LAST_FILE.getFileVal()))
+            rights |= BLACK_KINGSIDE;
+        if (canStillCastle(COLOUR.B, BOARD.LAST_RANK.getRankVal(), BOARD.FIRST_FILE.getFileVal()))
+            rights |= BLACK_QUEENSIDE;
+        key ^= Zobrist.castling(castlingRights) ^ Zobrist.castling(rights);
+        castlingRights = rights;
+    }
+
+    /**
+     * Проверяет, что король и ладья стоят на исходных полях и еще не ходили
+     * @param colour цвет короля и ладьи
+     * @param rank исходная горизонталь
+     * @param rookFile исходная вертикаль ладьи
+     * @return true если рокировка в эту сторону еще возможна
+     */
+    private boolean canStillCastle(COLOUR colour, int rank, char rookFile) {
+        Piece king = board[Bitboards.square('e', rank)];
+        Piece rook = board[Bitboards.square(rookFile, rank)];
+        return king != null && king.getName() == ID.KING && king.getColour() == colour && !king.getHasMoved()
+                && rook != null && rook.getName() == ID.ROOK && rook.getColour() == colour && !rook.getHasMoved();
+    }
+
+    /**
+     * Ставит фигуру на поле в массиве полей и битовых досках
+     * @param square индекс поля
+     * @param piece фигура
+     */
+    private void setSquare(int square, Piece piece) {
+        long bit = Bitboards.bit(square);
+        board[square] = piece;
+        bitboards[Bitboards.index(piece.getColour(), piece.getName())] |= bit;
+        colourBitboards[piece.getColour().ordinal()] |= bit;
+        occupied |= bit;
+        key ^= Zobrist.piece(piece.getColour(), piece.getName(), square);
+        if (piece.getName() == ID.PAWN)
+            pawnKey ^= Zobrist.piece(piece.getColour(), ID.PAWN, square);
+        midgameScore += PieceSquareTables.midgame(piece.getColour(), piece.getName(), square);
+        endgameScore += PieceSquareTables.endgame(piece.getColour(), piece.getName(), square);
+        phase += PieceSquareTables.phase(piece.getName());
+        version = ++versionCounter;
+    }
+
+    /**
+     * Убирает фигуру с поля в массиве полей и битовых досках
+     * @param square индекс поля
+     * @return снятая фигура или null, если поле было пустым
+     */
+    private Piece clearSquare(int square) {
+        Piece piece = board[square];
+        if (piece != null) {
+            long bit = ~Bitboards.bit(square);
+            board[square] = null;
+            bitboards[Bitboards.index(piece.getColour(), piece.getName())] &= bit;
+            colourBitboards[piece.getColour().ordinal()] &= bit;
+            occupied &= bit;
+            key ^= Zobrist.piece(piece.getColour(), piece.getName(), square);
+            if (piece.getName() == ID.PAWN)
+                pawnKey ^= Zobrist.piece(piece.getColour(), ID.PAWN, square);
+            midgameScore -= PieceSquareTables.midgame(piece.getColour(), piece.getName(), square);
+            endgameScore -= PieceSquareTables.endgame(piece.getColour(), piece.getName(), square);
+            phase -= PieceSquareTables.phase(piece.getName());
+            version = ++versionCounter;
+        }
+        return piece;
     }
 
     /**
      * Создает глубокую копию карты координат и фигур
      * @param original оригинальная карта для копирования
-     * @return новая карта с копиями всех фигур и координат
+     * @return новая карта с копиями всех фигур; координаты неизменяемы и не копируются
      */
     private HashMap<Coordinate, Piece> copyHashMap (HashMap<Coordinate, Piece> original) {
 
         HashMap<Coordinate, Piece> copyMap = new HashMap<>();
         for (Coordinate key : original.keySet()) {
-            Coordinate newKey = new Coordinate(key);
             Piece newPiece = original.get(key).makeCopy();
-            copyMap.put(newKey,newPiece);
+            copyMap.put(key,newPiece);
         }
 
         return copyMap;
     }
 
-    /**
-     * Создает глубокую копию списка карт координат и фигур
-     * @param original оригинальный список для копирования
-     * @return новый список с копиями всех карт
-     */
-    private ArrayList<HashMap<Coordinate,Piece>> copyArrayHash (ArrayList<HashMap<Coordinate,Piece>> original) {
-        ArrayList<HashMap<Coordinate,Piece>> copyList = new ArrayList<>();
-        for (HashMap<Coordinate,Piece> game : original) {
-            copyList.add(copyHashMap(game));
-        }
-
-        return copyList;
-    }
-
     /**
      * Получает карту всех фигур на доске
      * @return карта координат и фигур
      */
     public HashMap<Coordinate, Piece> getPieces() {
+        if (mapDirty) {
+            pieces.clear();
+            long remaining = occupied;
+            while (remaining != 0) {
+                int square = Long.numberOfTrailingZeros(remaining);
+                remaining &= remaining - 1;
+                pieces.put(Bitboards.toCoordinate(square), board[square]);
+            }
+            mapDirty = false;
+        }
         return pieces;
     }
 
@@ -99,7 +490,162 @@ public class Pieces {
      * Устанавливает карту фигур на доске
      * @param pieces карта координат и фигур
      */
-    public void setPieces(HashMap<Coordinate,Piece> pieces) {this.pieces = pieces;}
+    public void setPieces(HashMap<Coordinate,Piece> pieces) {
+        this.pieces = pieces;
+        indexBoard();
+        initCastlingRights();
+    }
+
+    /**
+     * Получает битовую доску всех занятых полей
+     * @return маска занятых полей
+     */
+    public long getOccupied() {
+        return occupied;
+    }
+
+    /**
+     * Получает битовую доску всех фигур указанного цвета
+     * @param colour цвет фигур
+     * @return маска полей, занятых фигурами этого цвета
+     */
+    public long getColourBitboard(COLOUR colour) {
+        return colourBitboards[colour.ordinal()];
+    }
+
+    /**
+     * Получает битовую доску фигур указанного цвета и типа
+     * @param colour цвет фигур
+     * @param name тип фигур
+     * @return маска полей, занятых такими фигурами
+     */
+    public long getBitboard(COLOUR colour, ID name) {
+        return bitboards[Bitboards.index(colour, name)];
+    }
+
+    /**
+     * Получает фигуру на поле по его индексу
+     * @param square индекс поля
+     * @return фигура или null, если поле пустое
+     */
+    public Piece getPiece(int square) {
+        return board[square];
+    }
+
+    /**
+     * Проверяет, занята ли координата какой-либо фигурой
+     * @param coordinate координата для проверки
+     * @return true если на координате стоит фигура
+     */
+    public boolean isOccupied(Coordinate coordinate) {
+        int square = Bitboards.square(coordinate);
+        return square != Bitboards.NO_SQUARE && (occupied & Bitboards.bit(square)) != 0;
+    }
+
+    /**
+     * Проверяет, занята ли координата фигурой указанного цвета
+     * @param coordinate координата для проверки
+     * @param colour цвет фигуры
+     * @return true если на координате стоит фигура этого цвета
+     */
+    public boolean isOccupied(Coordinate coordinate, COLOUR colour) {
+        int square = Bitboards.square(coordinate);
+        return square != Bitboards.NO_SQUARE && (getColourBitboard(colour) & Bitboards.bit(square)) != 0;
+    }
+
+    /**
+     * Получает текущие права на рокировку
+     * @return комбинация флагов WHITE_KINGSIDE, WHITE_QUEENSIDE, BLACK_KINGSIDE, BLACK_QUEENSIDE
+     */
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    /**
+     * Получает поле, на котором возможно взятие на проходе
+     * @return индекс поля или Bitboards.NO_SQUARE, если взятие на проходе невозможно
+     */
+    public int getEnPassantSquare() {
+        return enPassantSquare;
+    }
+
+    /**
+     * Получает цвет, чей сейчас ход
+     * @return цвет стороны, делающей следующий ход
+     */
+    public COLOUR getSideToMove() {
+        return sideToMove;
+    }
+
+    /**
+     * Получает число полуходов с последнего взятия или хода пешки
+     * @return счетчик полуходов
+     */
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    /**
+     * Получает номер хода партии, увеличивается после каждого хода черных
+     * @return номер хода
+     */
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    /**
+     * Получает 64-битный ключ Zobrist текущей позиции.
+     * Ключ учитывает расстановку фигур, очередь хода, права на рокировку и взятие на проходе
+     * и обновляется при каждом ходе, поэтому позиции можно сравнивать одним сравнением чисел
+     * @return ключ позиции
+     */
+    public long getKey() {
+        return key;
+    }
+
+    /**
+     * Получает ключ Zobrist расстановки пешек без остальных фигур.
+     * Пешечная структура меняется редко, поэтому по этому ключу кэшируется ее оценка
+     * @return ключ расстановки пешек
+     */
+    public long getPawnKey() {
+        return pawnKey;
+    }
+
+    /**
+     * Получает сумму материала и бонусов положения всех фигур для миттельшпиля.
+     * Сумма обновляется при каждой постановке и снятии фигуры
+     * @return оценка в сантипешках, положительная в пользу белых
+     */
+    public int getMidgameScore() {
+        return midgameScore;
+    }
+
+    /**
+     * Получает сумму материала и бонусов положения всех фигур для эндшпиля
+     * @return оценка в сантипешках, положительная в пользу белых
+     */
+    public int getEndgameScore() {
+        return endgameScore;
+    }
+
+    /**
+     * Получает фазу игры по оставшимся фигурам
+     * @return от 0 (только короли и пешки) до PieceSquareTables.MAX_PHASE (все фигуры на доске)
+     */
+    public int getPhase() {
+        return phase;
+    }
+
+    /**
+     * Получает номер версии позиции. Номер меняется при каждом изменении доски
+     * и восстанавливается при отмене хода, поэтому по нему фигуры проверяют,
+     * не устарели ли их вычисленные ходы
+     * @return номер версии позиции
+     */
+    public long getVersion() {
+        return version;
+    }
 
     /**
      * Проверяет, был ли последний ход взятием фигуры
@@ -118,27 +664,153 @@ public class Pieces {
     }
 
     /**
-     * Получает карту фигур предыдущего хода
+     * Получает карту фигур предыдущего хода.
+     * Позиция восстанавливается по истории ходов при каждом вызове
      * @return карта координат и фигур предыдущего состояния
      */
     public HashMap<Coordinate, Piece> getPreviousPieces() {
-        return previousPieces;
+        return getPositionAt(Math.max(0, plyCount - 1)).getPieces();
     }
 
     /**
-     * Устанавливает карту фигур предыдущего хода
-     * @param previousPieces карта координат и фигур предыдущего состояния
+     * Получает историю всех позиций партии.
+     * Позиции восстанавливаются по истории ходов при каждом вызове
+     * @return список карт координат и фигур для каждой позиции
      */
-    public void setPreviousPieces(HashMap<Coordinate, Piece> previousPieces) {
-        this.previousPieces = copyHashMap(previousPieces);
+    public ArrayList<HashMap<Coordinate, Piece>> getGameProgress() {
+        ArrayList<HashMap<Coordinate, Piece>> progress = new ArrayList<>();
+        Pieces position = startPosition();
+        progress.add(copyHashMap(position.getPieces()));
+        for (int ply = 0; ply < plyCount; ply++) {
+            position.replayMove(moveHistory[ply]);
+            progress.add(copyHashMap(position.getPieces()));
+        }
+        return progress;
     }
 
     /**
-     * Получает историю всех позиций партии
-     * @return список карт координат и фигур для каждой позиции
+     * Восстанавливает позицию партии после указанного числа ходов
+     * @param ply число ходов от начальной позиции
+     * @return новый объект Pieces с этой позицией и историей до нее
+     * @throws IndexOutOfBoundsException если ходов в партии меньше
      */
-    public ArrayList<HashMap<Coordinate, Piece>> getGameProgress() {
-        return gameProgress;
+    public Pieces getPositionAt(int ply) {
+        if (ply < 0 || ply > plyCount)
+            throw new IndexOutOfBoundsException("В партии нет позиции после хода " + ply + ".");
+
+        Pieces position = startPosition();
+        position.isGUIGame = isGUIGame;
+        for (int i = 0; i < ply; i++)
+            position.replayMove(moveHistory[i]);
+        return position;
+    }
+
+    /**
+     * Создает начальную позицию партии: из записи FEN, если партия началась с нее,
+     * иначе из сохраненной карты фигур
+     * @return новый объект Pieces с начальной позицией без истории
+     */
+    private Pieces startPosition() {
+        return initialFen != null ? new Pieces(initialFen) : new Pieces(copyHashMap(initialBoard));
+    }
+
+    /**
+     * Получает число ходов, сделанных в партии
+     * @return число полуходов
+     */
+    public int getPlyCount() {
+        return plyCount;
+    }
+
+    /**
+     * Получает ход партии в упакованном виде
+     * @param ply номер полухода, начиная с 0
+     * @return упакованный ход с флагами, его можно передать в make и playMove
+     */
+    public int getHistoryMove(int ply) {
+        if (ply < 0 || ply >= plyCount)
+            throw new IndexOutOfBoundsException("В партии нет хода " + ply + ".");
+        return moveHistory[ply];
+    }
+
+    /**
+     * Получает ключ позиции партии
+     * @param ply число ходов от начальной позиции
+     * @return ключ Zobrist позиции после указанного числа ходов
+     */
+    public long getHistoryKey(int ply) {
+        if (ply < 0 || ply > plyCount)
+            throw new IndexOutOfBoundsException("В партии нет позиции после хода " + ply + ".");
+        return keyHistory[ply];
+    }
+
+    /**
+     * Повторяет записанный ход партии на этой позиции
+     * @param move упакованный ход
+     */
+    private void replayMove(int move) {
+        Piece piece = board[PackedMove.from(move)];
+        Coordinate coordinate = Bitboards.toCoordinate(PackedMove.to(move));
+        ID promotion = PackedMove.promotion(move);
+        Piece toPromote = promotion == null ? null : Boards.createPiece(promotion, piece.getColour(), coordinate);
+        recordMove(make(coordinate, piece, toPromote));
+    }
+
+    /**
+     * Делает упакованный ход из генератора без проверки правил и записывает его в историю партии,
+     * например при чтении записанной партии. Вычисленные ходы фигур не обновляются
+     * @param move упакованный ход с флагами
+     * @throws IllegalArgumentException если на исходном поле нет фигуры стороны, чей ход
+     */
+    public void playMove(int move) {
+        Piece piece = board[PackedMove.from(move)];
+        if (piece == null || piece.getColour() != sideToMove)
+            throw new IllegalArgumentException("Ход " + PackedMove.toString(move) + " не может быть сделан в позиции.");
+
+        ID promotion = PackedMove.promotion(move);
+        Piece toPromote = promotion == null ? null
+                : Boards.createPiece(promotion, piece.getColour(), Bitboards.toCoordinate(PackedMove.to(move)));
+        MoveUndo undo = new MoveUndo();
+        make(move, toPromote, undo);
+        isCapture = undo.captured != null;
+        recordMove(undo);
+    }
+
+    /**
+     * Записывает сделанный ход в историю партии и счетчик повторений
+     * @param undo запись сделанного хода
+     */
+    private void recordMove(MoveUndo undo) {
+        if (plyCount == moveHistory.length) {
+            moveHistory = Arrays.copyOf(moveHistory, plyCount * 2);
+            keyHistory = Arrays.copyOf(keyHistory, plyCount * 2 + 1);
+        }
+        ID promotion = undo.getPromoted() == null ? null : undo.getPromoted().getName();
+        moveHistory[plyCount++] = PackedMove.encode(undo.getFrom(), undo.getTo(), promotion, moveFlags(undo));
+        keyHistory[plyCount] = key;
+
+        // После взятия, хода пешки или потери права на рокировку прежние позиции не повторятся
+        if (undo.getCaptured() != null || undo.getPiece().getName() == ID.PAWN || undo.castlingRights != castlingRights)
+            repetitions.clear();
+        repetitions.add(key);
+    }
+
+    /**
+     * Восстанавливает флаги сделанного хода, чтобы ход из истории можно было снова передать в make
+     * @param undo запись сделанного хода
+     * @return комбинация флагов PackedMove
+     */
+    private static int moveFlags(MoveUndo undo) {
+        int flags = 0;
+        if (undo.captured != null)
+            flags |= PackedMove.CAPTURE;
+        if (undo.captured != null && undo.capturedSquare != undo.to)
+            flags |= PackedMove.EN_PASSANT;
+        if (undo.rook != null)
+            flags |= PackedMove.CASTLE;
+        if (undo.piece.getName() == ID.PAWN && Math.abs(undo.to - undo.from) == 2 * Bitboards.FILES)
+            flags |= PackedMove.DOUBLE_PUSH;
+        return flags;
     }
 
     /**
@@ -155,7 +827,25 @@ public class Pieces {
      * @param piece фигура для добавления
      */
     public void addPiece(Coordinate coordinate, Piece piece) {
-        pieces.put(coordinate,piece);
+        int square = Bitboards.square(coordinate);
+        if (square == Bitboards.NO_SQUARE)
+            throw new IllegalArgumentException("Координата " + coordinate + " находится вне доски.");
+        getPieces().put(coordinate,piece);
+        clearSquare(square);
+        setSquare(square, piece);
+    }
+
+    /**
+     * Убирает фигуру с указанной координаты
+     * @param coordinate координата фигуры
+     * @return снятая фигура или null, если координата была пустой
+     */
+    public Piece removePiece(Coordinate coordinate) {
+        int square = Bitboards.square(coordinate);
+        if (square == Bitboards.NO_SQUARE)
+            return null;
+        getPieces().remove(coordinate);
+        return clearSquare(square);
     }
 
     /**
@@ -167,9 +857,16 @@ public class Pieces {
 
         Objects.requireNonNull(piece, "Фигура не может быть null.");
 
-        for (Coordinate key : pieces.keySet()) {
-            if (pieces.get(key).equals(piece))
-                return key;
+        int square = Bitboards.square(piece.getCoords());
+        if (square != Bitboards.NO_SQUARE && piece.equals(board[square]))
+            return piece.getCoords();
+
+        long candidates = getBitboard(piece.getColour(), piece.getName());
+        while (candidates != 0) {
+            square = Long.numberOfTrailingZeros(candidates);
+            candidates &= candidates - 1;
+            if (board[square].equals(piece))
+                return board[square].getCoords();
         }
         System.err.println(piece.getName().toFullString() +" не найдена на доске.");
         return Coordinate.emptyCoordinate;
@@ -181,11 +878,9 @@ public class Pieces {
      * @return координата короля или пустая координата, если король не найден
      */
     public Coordinate findKing(COLOUR colour) {
-        for (Coordinate key : pieces.keySet()) {
-            Piece potentialKing = pieces.get(key);
-            if (potentialKing.getName().equals(ID.KING) && (potentialKing.getColour() == colour))
-                return key;
-        }
+        long king = getBitboard(colour, ID.KING);
+        if (king != 0)
+            return board[Long.numberOfTrailingZeros(king)].getCoords();
         String pieceNotInBoard = "Король не найден на доске.";
         System.err.println(pieceNotInBoard);
         return Coordinate.emptyCoordinate;
@@ -200,10 +895,9 @@ public class Pieces {
 
         Objects.requireNonNull(coordinate, "Координата не может быть null.");
 
-        for (Coordinate key : pieces.keySet()) {
-            if (key.equals(coordinate))
-                return pieces.get(key);
-        }
+        int square = Bitboards.square(coordinate);
+        if (square != Bitboards.NO_SQUARE && board[square] != null)
+            return board[square];
         System.err.println("На указанной координате нет фигуры.");
         return Piece.emptyPiece;
     }
@@ -215,10 +909,11 @@ public class Pieces {
      */
     public HashMap<Coordinate, Piece> getColourPieces(COLOUR colour) {
         HashMap<Coordinate,Piece> colours = new HashMap<>();
-        for (Coordinate key : pieces.keySet()) {
-            Piece piece = pieces.get(key);
-            if (piece.getColour() == colour)
-                colours.put(key,piece);
+        long coloured = getColourBitboard(colour);
+        while (coloured != 0) {
+            Piece piece = board[Long.numberOfTrailingZeros(coloured)];
+            coloured &= coloured - 1;
+            colours.put(piece.getCoords(), piece);
         }
         return colours;
     }
@@ -230,37 +925,43 @@ public class Pieces {
      */
     public HashSet<Coordinate> allColouredPotentials (COLOUR colour) {
         HashSet<Coordinate> allMoves = new HashSet<>();
-        HashMap<Coordinate, Piece> allColoured = getColourPieces(colour);
-        for (Piece piece : allColoured.values()){
-            allMoves.addAll(piece.getPotentialMoves());
+        long coloured = getColourBitboard(colour);
+        while (coloured != 0) {
+            allMoves.addAll(board[Long.numberOfTrailingZeros(coloured)].getPotentialMoves(this));
+            coloured &= coloured - 1;
         }
         return allMoves;
     }
 
     /**
-     * Получает все возможные ходы всех фигур указанного цвета (без учета шаха)
+     * Проверяет, есть ли у фигур указанного цвета хотя бы один ход (с учетом шаха).
+     * Ходы вычисляются только до первой фигуры, которой есть куда пойти
      * @param colour цвет фигур
-     * @return множество координат всех возможных ходов
+     * @return true если хотя бы одна фигура может сделать ход
      */
-    public HashSet<Coordinate> allColouredRaws (COLOUR colour) {
-        HashSet<Coordinate> allMoves = new HashSet<>();
-        HashMap<Coordinate, Piece> allColoured = getColourPieces(colour);
-        for (Piece piece : allColoured.values()){
-            allMoves.addAll(piece.getRawMoves(this));
+    public boolean hasPotentialMoves(COLOUR colour) {
+        long coloured = getColourBitboard(colour);
+        while (coloured != 0) {
+            if (!board[Long.numberOfTrailingZeros(coloured)].getPotentialMoves(this).isEmpty())
+                return true;
+            coloured &= coloured - 1;
         }
-        return allMoves;
+        return false;
     }
 
     /**
-     * Обновляет предыдущие координаты всех пешек после хода
+     * Получает все возможные ходы всех фигур указанного цвета (без учета шаха)
+     * @param colour цвет фигур
+     * @return множество координат всех возможных ходов
      */
-    public void updatePreviousMovePawns () {
-        for (Piece potentialPawn : pieces.values()){
-            if (potentialPawn.getName() == ID.PAWN) {
-                Pawn pawn = (Pawn) potentialPawn;
-                pawn.setPreviousCoordinate(pawn.getCoords());
-            }
+    public HashSet<Coordinate> allColouredRaws (COLOUR colour) {
+        HashSet<Coordinate> allMoves = new HashSet<>();
+        long coloured = getColourBitboard(colour);
+        while (coloured != 0) {
+            allMoves.addAll(board[Long.numberOfTrailingZeros(coloured)].getRawMoves(this));
+            coloured &= coloured - 1;
         }
+        return allMoves;
     }
 
     /**
@@ -273,12 +974,8 @@ public class Pieces {
         if (piece.getName() == ID.KING)
             return false;
 
-        HashMap <Coordinate, Piece> coloured = getColourPieces(piece.getColour());
-        for (Piece value : coloured.values()) {
-            if (value.getName() == piece.getName() && value.getFile() == piece.getFile() && !value.equals(piece))
-                return true;
-        }
-        return false;
+        long sameLine = getBitboard(piece.getColour(), piece.getName()) & Bitboards.fileMask(piece.getFile());
+        return Long.bitCount(sameLine) > 1;
     }
 
     /**
@@ -291,12 +988,8 @@ public class Pieces {
         if (piece.getName() == ID.KING)
             return false;
 
-        HashMap <Coordinate, Piece> coloured = getColourPieces(piece.getColour());
-        for (Piece value : coloured.values()) {
-            if (value.getName() == piece.getName() && value.getRank() == piece.getRank() && !value.equals(piece))
-                return true;
-        }
-        return false;
+        long sameLine = getBitboard(piece.getColour(), piece.getName()) & Bitboards.rankMask(piece.getRank());
+        return Long.bitCount(sameLine) > 1;
     }
 
     /**
@@ -306,19 +999,56 @@ public class Pieces {
      * @return true если другая фигура того же типа может сделать ход на эту координату
      */
     public boolean pieceToSameCoordinate (Coordinate coordinate, Piece piece) {
-        assert piece.getPotentialMoves().contains(coordinate);
+        assert piece.getPotentialMoves(this).contains(coordinate);
 
         if (piece.getName() == ID.KING)
             return false;
 
-        HashMap <Coordinate, Piece> coloured = getColourPieces(piece.getColour());
-        for (Piece value : coloured.values()) {
-            if (value.getName() == piece.getName() && value.getPotentialMoves().contains(coordinate) && !value.equals(piece))
+        long sameType = getBitboard(piece.getColour(), piece.getName());
+        while (sameType != 0) {
+            Piece value = board[Long.numberOfTrailingZeros(sameType)];
+            sameType &= sameType - 1;
+            if (!value.equals(piece) && value.getPotentialMoves(this).contains(coordinate))
                 return true;
         }
         return false;
     }
 
+    /**
+     * Проверяет, атакует ли поле хотя бы одна фигура указанного цвета.
+     * Лучи и прыжки строятся от самого поля, поэтому проверка не требует генерации ходов
+     * @param coordinate проверяемая координата
+     * @param attacker цвет атакующих фигур
+     * @return true если поле атаковано
+     */
+    public boolean isSquareAttacked(Coordinate coordinate, COLOUR attacker) {
+        int square = Bitboards.square(coordinate);
+        return square != Bitboards.NO_SQUARE && isSquareAttacked(square, attacker);
+    }
+
+    /**
+     * Проверяет, атакует ли поле хотя бы одна фигура указанного цвета
+     * @param square индекс проверяемого поля
+     * @param attacker цвет атакующих фигур
+     * @return true если поле атаковано
+     */
+    public boolean isSquareAttacked(int square, COLOUR attacker) {
+        // Пешка атакует поле, если с этого поля пешка другого цвета атаковала бы ее
+        if ((Bitboards.PAWN_ATTACKS[COLOUR.not(attacker).ordinal()][square] & getBitboard(attacker, ID.PAWN)) != 0)
+            return true;
+        if ((Bitboards.KNIGHT_ATTACKS[square] & getBitboard(attacker, ID.KNIGHT)) != 0)
+            return true;
+        if ((Bitboards.KING_ATTACKS[square] & getBitboard(attacker, ID.KING)) != 0)
+            return true;
+
+        long queens = getBitboard(attacker, ID.QUEEN);
+        long straight = getBitboard(attacker, ID.ROOK) | queens;
+        long diagonal = getBitboard(attacker, ID.BISHOP) | queens;
+
+        return (straight != 0 && (Bitboards.rookAttacks(square, occupied) & straight) != 0)
+                || (diagonal != 0 && (Bitboards.bishopAttacks(square, occupied) & diagonal) != 0);
+    }
+
     /**
      * Проверяет, находится ли король указанного цвета под шахом
      * @param colour цвет короля для проверки
@@ -326,13 +1056,12 @@ public class Pieces {
      * @throws IllegalArgumentException если король не найден на доске
      */
     public boolean isCheck(COLOUR colour) {
-        Coordinate kingPosition = findKing(colour);
+        long king = getBitboard(colour, ID.KING);
 
-        if (kingPosition.equals(Coordinate.emptyCoordinate))
+        if (king == 0)
             throw new IllegalArgumentException("Король не найден на доске!");
 
-        HashSet<Coordinate> dangerMoves = allColouredPotentials(COLOUR.not(colour));
-        return (dangerMoves.contains(kingPosition));
+        return isSquareAttacked(Long.numberOfTrailingZeros(king), COLOUR.not(colour));
     }
 
     /**
@@ -341,8 +1070,7 @@ public class Pieces {
      * @return true если король под матом
      */
     public boolean isMate(COLOUR colour) {
-        HashSet<Coordinate> allMoves = allColouredPotentials(colour);
-        return isCheck(colour) && (allMoves.size() == 0);
+        return isCheck(colour) && !hasPotentialMoves(colour);
     }
 
     /**
@@ -352,61 +1080,48 @@ public class Pieces {
      * @return true если позиция является ничьей
      */
     public boolean isDraw() {
+        return isInsufficientMaterial() || isThreefoldRepetition();
+    }
 
-        int n = gameProgress.size();
+    /**
+     * Проверяет, хватает ли на доске материала для мата, без поиска повторений
+     * @return true если остались только короли, король против короля и слона/коня
+     * или король и слон против короля и слона на полях одного цвета
+     */
+    public boolean isInsufficientMaterial() {
 
-        boolean twoKings = !findKing(COLOUR.B).equals(Coordinate.emptyCoordinate) && !findKing(COLOUR.W).equals(Coordinate.emptyCoordinate);
+        int pieceCount = Long.bitCount(occupied);
+        if (pieceCount > 4)
+            return false;
+        boolean twoKings = getBitboard(COLOUR.B, ID.KING) != 0 && getBitboard(COLOUR.W, ID.KING) != 0;
 
-        if (getPieces().size() == 2)
+        if (pieceCount == 2)
             return twoKings;
-        else if (getPieces().size() == 3) {
-            int counter = 0;
-            for (Piece piece : this.getPieces().values()) {
-                if (piece.getName() == ID.BISHOP || piece.getName() == ID.KNIGHT)
-                    counter++;
-            }
-            return twoKings && counter == 1;
-        }
-        else if (getPieces().size() == 4) {
-            int counterB = 0;
-            Bishop bishopB = null;
-            int counterW = 0;
-            Bishop bishopW = null;
-            for (Piece piece : this.getPieces().values()) {
-                if (piece.getName() == ID.BISHOP) {
-                    if (piece.getColour() == COLOUR.B) {
-                        bishopB = (Bishop) piece;
-                        counterB++;
-                    }
-                    else {
-                        bishopW = (Bishop) piece;
-                        counterW++;
-                    }
-                }
-            }
+        else if (pieceCount == 3) {
+            long minors = getBitboard(COLOUR.B, ID.BISHOP) | getBitboard(COLOUR.W, ID.BISHOP)
+                    | getBitboard(COLOUR.B, ID.KNIGHT) | getBitboard(COLOUR.W, ID.KNIGHT);
+            return twoKings && Long.bitCount(minors) == 1;
+        }
+        else {
+            long bishopB = getBitboard(COLOUR.B, ID.BISHOP);
+            long bishopW = getBitboard(COLOUR.W, ID.BISHOP);
+            long bishops = bishopB | bishopW;
 
-            boolean sameColourBishops = counterB == 1 &&
-                    counterW == 1 &&
-                    bishopB.getOGcoord().getFile() != bishopW.getOGcoord().getFile();
+            boolean sameColourBishops = Long.bitCount(bishopB) == 1 &&
+                    Long.bitCount(bishopW) == 1 &&
+                    ((bishops & Bitboards.LIGHT_SQUARES) == bishops || (bishops & Bitboards.DARK_SQUARES) == bishops);
 
             return twoKings && sameColourBishops;
         }
-        else if (n >= 3){
-            for (HashMap<Coordinate, Piece> currentGame : gameProgress) {
-                int counter = 0;
-                for (HashMap<Coordinate, Piece> checkGame : gameProgress) {
-                    if (currentGame.equals(checkGame)) {
-                        counter++;
-                    }
-                }
-                if (counter == 3)
-                    return true;
-            }
 
-        }
-
-        return false;
+    }
 
+    /**
+     * Проверяет, встретилась ли текущая позиция в партии в третий раз
+     * @return true если позиция повторилась трижды с последнего необратимого хода
+     */
+    public boolean isThreefoldRepetition() {
+        return repetitions.count(key) >= 3;
     }
 
     /**
@@ -415,8 +1130,7 @@ public class Pieces {
      * @return true если позиция является патом (нет ходов, но нет шаха)
      */
     public boolean isStalemate(COLOUR colour) {
-        HashSet<Coordinate> allMoves = allColouredPotentials(COLOUR.not(colour));
-        return allMoves.size() == 0 && !isCheck(COLOUR.not(colour));
+        return !isCheck(COLOUR.not(colour)) && !hasPotentialMoves(COLOUR.not(colour));
 
     }
 
@@ -427,10 +1141,10 @@ public class Pieces {
      */
     public void pieceMove (Coordinate coordinate, Piece piece) {
         Coordinate pieceCoord = findPiece(piece);
+        removePiece(pieceCoord);
         addPiece(coordinate, piece);
         piece.setCoords(coordinate);
         piece.setHasMoved();
-        pieces.remove(pieceCoord);
     }
 
     /**
@@ -441,23 +1155,11 @@ public class Pieces {
      */
     public void makeMove (Coordinate coordinate, Piece piece) {
 
-        if (piece.isValidMove(coordinate, piece.getColour())) {
-            setPreviousPieces(this.getPieces());
-            isCapture = Move.tileFull(this, coordinate) && Move.isNotTileColour(this,coordinate, piece.getColour());
-            if (piece.getName() == ID.KING) {
-                King castleKing = (King) piece;
-                pieceMove(coordinate, castleKing);
-            }
-            else if (piece.getName() == ID.PAWN) {
+        if (piece.isValidMove(this, coordinate, piece.getColour())) {
+            Piece toPromote = null;
+            if (piece.getName() == ID.PAWN) {
                 Pawn pawn = (Pawn) piece;
-
-                updatePreviousMovePawns();
-                if (Math.abs(coordinate.getRank() - pawn.getRank()) == 2)
-                    pawn.setHasMovedTwo();
-
                 if (pawn.canPromoteBlack(coordinate) || pawn.canPromoteWhite(coordinate)) {
-                    Piece toPromote;
-
                     if (isGUIGame) {
                         toPromote = pawn.getPromotedPiece();
                         if (toPromote == null) {
@@ -467,34 +1169,354 @@ public class Pieces {
                     else {
                         toPromote = pawn.promotionQuery(coordinate);
                     }
-                    Coordinate pieceCoord = findPiece(piece);
-                    addPiece(coordinate, toPromote);
-                    pieces.remove(pieceCoord);
-                }
-                else {
-                    pieceMove(coordinate, pawn);
                 }
             }
-            else {
-                pieceMove(coordinate, piece);
-            }
+            boolean wasInCheck = hasKingInCheck(piece.getColour());
+            MoveUndo undo = make(coordinate, piece, toPromote);
+            isCapture = undo.getCaptured() != null;
+            recordMove(undo);
+            keepUnaffectedMoves(undo, wasInCheck);
         }
         else
             System.err.println(piece.getName().toFullString() + " не может сделать ход на " + coordinate.toString() + ".");
 
-        gameProgress.add(copyHashMap(pieces));
-        updatePotentials();
+    }
+
+    /**
+     * Выполняет ход на месте, без проверки правил, истории и обновления возможных ходов.
+     * Пешка, дошедшая до последней горизонтали, превращается в фигуру из promotionQuery.
+     * Ход отменяется вызовом unmake с возвращенной записью.
+     * @param coordinate координата назначения
+     * @param piece фигура, делающая ход
+     * @return запись для отмены хода
+     */
+    public MoveUndo make(Coordinate coordinate, Piece piece) {
+        Piece toPromote = null;
+        if (piece.getName() == ID.PAWN) {
+            Pawn pawn = (Pawn) piece;
+            if (pawn.canPromoteBlack(coordinate) || pawn.canPromoteWhite(coordinate))
+                toPromote = pawn.promotionQuery(coordinate);
+        }
+        return make(coordinate, piece, toPromote);
+    }
+
+    /**
+     * Выполняет ход на месте, без проверки правил, истории и обновления возможных ходов.
+     * Обрабатывает взятие, взятие на проходе, рокировку и превращение пешки.
+     * @param coordinate координата назначения
+     * @param piece фигура, делающая ход
+     * @param toPromote фигура, в которую превращается пешка, или null
+     * @return запись для отмены хода
+     * @throws IllegalArgumentException если фигуры нет на доске или координата вне доски
+     */
+    public MoveUndo make(Coordinate coordinate, Piece piece, Piece toPromote) {
+        int from = Bitboards.square(piece.getCoords());
+        int to = Bitboards.square(coordinate);
+
+        if (from == Bitboards.NO_SQUARE || board[from] != piece)
+            throw new IllegalArgumentException(piece + " не стоит на доске.");
+        if (to == Bitboards.NO_SQUARE)
+            throw new IllegalArgumentException("Координата " + coordinate + " находится вне доски.");
+
+        boolean isPawn = piece.getName() == ID.PAWN;
+        int flags = 0;
+        if (isPawn && to == enPassantSquare && board[to] == null)
+            flags |= PackedMove.EN_PASSANT;
+        if (piece.getName() == ID.KING && Math.abs(to - from) == 2)
+            flags |= PackedMove.CASTLE;
+        if (isPawn && Math.abs(to - from) == 2 * Bitboards.FILES)
+            flags |= PackedMove.DOUBLE_PUSH;
+
+        MoveUndo undo = new MoveUndo();
+        make(from, to, coordinate, toPromote, flags, undo);
+        return undo;
+    }
+
+    /**
+     * Выполняет упакованный ход на месте, без проверки правил, истории и обновления возможных ходов.
+     * Флаги хода должны соответствовать позиции, как у ходов из генератора.
+     * Запись для отмены заполняется заново, поэтому одну запись можно использовать на каждом уровне поиска
+     * @param move упакованный ход с флагами
+     * @param toPromote фигура, в которую превращается пешка, или null
+     * @param undo запись для отмены хода, перезаписывается
+     */
+    public void make(int move, Piece toPromote, MoveUndo undo) {
+        int to = PackedMove.to(move);
+        make(PackedMove.from(move), to, Bitboards.toCoordinate(to), toPromote, PackedMove.flags(move), undo);
+    }
+
+    /**
+     * Выполняет ход по индексам полей и флагам хода
+     * @param from индекс исходного поля
+     * @param to индекс поля назначения
+     * @param coordinate координата поля назначения
+     * @param toPromote фигура, в которую превращается пешка, или null
+     * @param flags флаги EN_PASSANT, CASTLE и DOUBLE_PUSH из PackedMove
+     * @param undo запись для отмены хода, перезаписывается
+     */
+    private void make(int from, int to, Coordinate coordinate, Piece toPromote, int flags, MoveUndo undo) {
+        Piece piece = board[from];
+        undo.piece = piece;
+        undo.fromCoordinate = piece.getCoords();
+        undo.from = from;
+        undo.to = to;
+        undo.castlingRights = castlingRights;
+        undo.enPassantSquare = enPassantSquare;
+        undo.halfmoveClock = halfmoveClock;
+        undo.key = key;
+        undo.version = version;
+        undo.hadMoved = piece.getHasMoved();
+        undo.promoted = null;
+        undo.rook = null;
+
+        int capturedSquare = to;
+        if ((flags & PackedMove.EN_PASSANT) != 0)
+            capturedSquare = from - from % Bitboards.FILES + to % Bitboards.FILES;
+
+        undo.captured = clearSquare(capturedSquare);
+        undo.capturedSquare = capturedSquare;
+        clearSquare(from);
+
+        if (toPromote != null) {
+            undo.promoted = toPromote;
+            toPromote.setCoords(coordinate);
+            setSquare(to, toPromote);
+        }
+        else {
+            piece.setCoords(coordinate);
+            setSquare(to, piece);
+        }
+        piece.setHasMoved();
+
+        if ((flags & PackedMove.CASTLE) != 0) {
+            int rankStart = from - from % Bitboards.FILES;
+            int rookFrom = to > from ? rankStart + Bitboards.FILES - 1 : rankStart;
+            int rookTo = (from + to) / 2;
+            Piece rook = clearSquare(rookFrom);
+            if (rook != null) {
+                undo.rook = rook;
+                undo.rookCoordinate = rook.getCoords();
+                undo.rookFrom = rookFrom;
+                undo.rookTo = rookTo;
+                undo.rookHadMoved = rook.getHasMoved();
+                rook.setCoords(Bitboards.toCoordinate(rookTo));
+                rook.setHasMoved();
+                setSquare(rookTo, rook);
+            }
+        }
 
+        int rights = castlingRights & castlingMask[from] & castlingMask[to];
+        key ^= Zobrist.castling(castlingRights) ^ Zobrist.castling(rights);
+        castlingRights = rights;
+
+        // Поле взятия на проходе запоминается, только если рядом есть пешка соперника,
+        // иначе одинаковые позиции получали бы разные ключи
+        key ^= Zobrist.enPassant(enPassantSquare);
+        enPassantSquare = Bitboards.NO_SQUARE;
+        if ((flags & PackedMove.DOUBLE_PUSH) != 0) {
+            int passed = (from + to) / 2;
+            COLOUR opponent = COLOUR.not(piece.getColour());
+            if ((Bitboards.PAWN_ATTACKS[piece.getColour().ordinal()][passed] & getBitboard(opponent, ID.PAWN)) != 0)
+                enPassantSquare = passed;
+        }
+        key ^= Zobrist.enPassant(enPassantSquare);
+
+        halfmoveClock = undo.captured != null || piece.getName() == ID.PAWN ? 0 : halfmoveClock + 1;
+        if (sideToMove == COLOUR.B)
+            fullmoveNumber++;
+
+        key ^= Zobrist.side(sideToMove);
+        sideToMove = COLOUR.not(sideToMove);
+        key ^= Zobrist.side(sideToMove);
+        mapDirty = true;
+    }
+
+    /**
+     * Отменяет ход, сделанный через make. Ходы должны отменяться в обратном порядке.
+     * @param undo запись, полученная от make
+     */
+    public void unmake(MoveUndo undo) {
+        if (undo.rook != null) {
+            clearSquare(undo.rookTo);
+            undo.rook.setCoords(undo.rookCoordinate);
+            undo.rook.setHasMoved(undo.rookHadMoved);
+            setSquare(undo.rookFrom, undo.rook);
+        }
+
+        clearSquare(undo.to);
+        undo.piece.setCoords(undo.fromCoordinate);
+        undo.piece.setHasMoved(undo.hadMoved);
+        setSquare(undo.from, undo.piece);
+
+        if (undo.captured != null)
+            setSquare(undo.capturedSquare, undo.captured);
+
+        castlingRights = undo.castlingRights;
+        enPassantSquare = undo.enPassantSquare;
+        halfmoveClock = undo.halfmoveClock;
+        sideToMove = COLOUR.not(sideToMove);
+        if (sideToMove == COLOUR.B)
+            fullmoveNumber--;
+        key = undo.key;
+        version = undo.version;
+        mapDirty = true;
+    }
+
+    /**
+     * Переносит вычисленные ходы фигур, которых не коснулся сделанный ход, на новую версию позиции.
+     * Заново при следующем запросе вычисляются только ходы королей, фигур, чьи лучи, прыжки
+     * или поля продвижения задевают измененные поля, фигур на линиях от своего короля
+     * через измененные поля (возможная связка) и всех фигур стороны, которая была или оказалась под шахом
+     * @param undo запись сделанного хода
+     * @param wasInCheck был ли под шахом король сделавшей ход стороны
+     */
+    private void keepUnaffectedMoves(MoveUndo undo, boolean wasInCheck) {
+        long changed = Bitboards.bit(undo.from) | Bitboards.bit(undo.to);
+        if (undo.captured != null)
+            changed |= Bitboards.bit(undo.capturedSquare);
+        if (undo.rook != null)
+            changed |= Bitboards.bit(undo.rookFrom) | Bitboards.bit(undo.rookTo);
+        if (undo.enPassantSquare != Bitboards.NO_SQUARE)
+            changed |= Bitboards.bit(undo.enPassantSquare);
+        if (enPassantSquare != Bitboards.NO_SQUARE)
+            changed |= Bitboards.bit(enPassantSquare);
+
+        // После хода короля связки его фигур считаются заново целиком
+        COLOUR mover = undo.piece.getColour();
+        long[] stale = new long[2];
+        for (COLOUR colour : COLOUR.values()) {
+            boolean allStale = colour == mover ? wasInCheck || undo.piece.getName() == ID.KING : hasKingInCheck(colour);
+            stale[colour.ordinal()] = allStale ? getColourBitboard(colour) : pinLines(colour, changed);
+        }
+
+        long remaining = occupied;
+        while (remaining != 0) {
+            int square = Long.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1;
+            Piece value = board[square];
+            boolean affected = value.getName() == ID.KING
+                    || (stale[value.getColour().ordinal()] & Bitboards.bit(square)) != 0
+                    || (value.getMovesMask() & changed) != 0;
+            if (!affected && value.hasMovesAt(this, undo.version))
+                value.keepMoves(version);
+        }
+    }
+
+    /**
+     * Собирает линии от короля, проходящие через измененные поля.
+     * Только на этих линиях у фигур может появиться или пропасть связка
+     * @param colour цвет короля
+     * @param changed маска измененных полей
+     * @return маска полей затронутых линий или 0, если короля нет на доске
+     */
+    private long pinLines(COLOUR colour, long changed) {
+        long king = getBitboard(colour, ID.KING);
+        if (king == 0)
+            return 0L;
+
+        int square = Long.numberOfTrailingZeros(king);
+        long lines = 0L;
+        for (int direction = 0; direction < Bitboards.DIRECTIONS; direction++) {
+            long line = Bitboards.RAYS[direction][square];
+            if ((line & changed) != 0)
+                lines |= line;
+        }
+        return lines;
+    }
+
+    /**
+     * Проверяет шах королю, не требуя его наличия на доске
+     * @param colour цвет короля
+     * @return true если король есть на доске и находится под шахом
+     */
+    private boolean hasKingInCheck(COLOUR colour) {
+        return getBitboard(colour, ID.KING) != 0 && isCheck(colour);
+    }
+
+    /**
+     * Получает маску полей, от которых зависят ходы фигуры без учета связок и шаха:
+     * собственное поле, поля лучей до первой фигуры включительно, поля прыжков
+     * и поля продвижения и взятия пешки
+     * @param piece фигура на доске
+     * @return маска полей
+     */
+    public long reachMask(Piece piece) {
+        int square = Bitboards.square(piece.getCoords());
+        long mask = Bitboards.bit(square) | getAttacks(square, piece.getName(), piece.getColour());
+
+        if (piece.getName() == ID.PAWN) {
+            int step = piece.getColour() == COLOUR.W ? 1 : -1;
+            for (int next = Bitboards.offset(square, 0, step), i = 0; next != Bitboards.NO_SQUARE && i < 2; i++) {
+                mask |= Bitboards.bit(next);
+                next = Bitboards.offset(next, 0, step);
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Получает поля, которые атаковала бы фигура с заданного поля при текущей расстановке.
+     * Лучи дальнобойных фигур заканчиваются на первой фигуре любого цвета
+     * @param square индекс поля
+     * @param name тип фигуры
+     * @param colour цвет фигуры
+     * @return маска атакованных полей
+     */
+    public long getAttacks(int square, ID name, COLOUR colour) {
+        switch (name) {
+            case KING:
+                return Bitboards.KING_ATTACKS[square];
+            case QUEEN:
+                return Bitboards.rookAttacks(square, occupied) | Bitboards.bishopAttacks(square, occupied);
+            case ROOK:
+                return Bitboards.rookAttacks(square, occupied);
+            case BISHOP:
+                return Bitboards.bishopAttacks(square, occupied);
+            case KNIGHT:
+                return Bitboards.KNIGHT_ATTACKS[square];
+            default:
+                return Bitboards.PAWN_ATTACKS[colour.ordinal()][square];
+        }
+    }
+
+    /**
+     * Получает все фигуры обоих цветов, которые бьют поле при заданной занятости доски.
+     * Лучи дальнобойных фигур строятся по той же занятости, поэтому если убрать из нее
+     * фигуру, открываются стоящие за ней ладьи, слоны и ферзи
+     * @param square индекс поля
+     * @param occupancy занятые поля; фигуры вне этой маски не учитываются
+     * @return маска атакующих фигур
+     */
+    public long attackersTo(int square, long occupancy) {
+        long straight = bitboards[Bitboards.index(COLOUR.W, ID.ROOK)] | bitboards[Bitboards.index(COLOUR.B, ID.ROOK)]
+                | bitboards[Bitboards.index(COLOUR.W, ID.QUEEN)] | bitboards[Bitboards.index(COLOUR.B, ID.QUEEN)];
+        long diagonal = bitboards[Bitboards.index(COLOUR.W, ID.BISHOP)] | bitboards[Bitboards.index(COLOUR.B, ID.BISHOP)]
+                | bitboards[Bitboards.index(COLOUR.W, ID.QUEEN)] | bitboards[Bitboards.index(COLOUR.B, ID.QUEEN)];
+
+        long attackers = (Bitboards.KNIGHT_ATTACKS[square]
+                        & (bitboards[Bitboards.index(COLOUR.W, ID.KNIGHT)] | bitboards[Bitboards.index(COLOUR.B, ID.KNIGHT)]))
+                | (Bitboards.KING_ATTACKS[square]
+                        & (bitboards[Bitboards.index(COLOUR.W, ID.KING)] | bitboards[Bitboards.index(COLOUR.B, ID.KING)]))
+                // Белая пешка бьет поле с тех полей, которые черная пешка бьет с него, и наоборот
+                | (Bitboards.PAWN_ATTACKS[COLOUR.B.ordinal()][square] & bitboards[Bitboards.index(COLOUR.W, ID.PAWN)])
+                | (Bitboards.PAWN_ATTACKS[COLOUR.W.ordinal()][square] & bitboards[Bitboards.index(COLOUR.B, ID.PAWN)])
+                | (Bitboards.rookAttacks(square, occupancy) & straight)
+                | (Bitboards.bishopAttacks(square, occupancy) & diagonal);
+        return attackers & occupancy;
     }
 
     /**
-     * Обновляет список возможных ходов для всех фигур на доске
+     * Заново вычисляет возможные ходы всех фигур на доске.
+     * Обычно не нужен: ходы вычисляются по запросу в Piece.getPotentialMoves(Pieces)
      */
     public void updatePotentials() {
 
-        for (Piece value : pieces.values()) {
+        long remaining = occupied;
+        while (remaining != 0) {
+            Piece value = board[Long.numberOfTrailingZeros(remaining)];
+            remaining &= remaining - 1;
             value.clearMoves();
-            value.updatePotentialMoves(this);
+            value.getPotentialMoves(this);
         }
     }
 
@@ -506,7 +1528,7 @@ public class Pieces {
     public String toString() {
         StringBuilder str = new StringBuilder();
 
-        pieces.forEach((coord, piece) -> str.append(piece.getPieceID())
+        getPieces().forEach((coord, piece) -> str.append(piece.getPieceID())
                 .append(" на ")
                 .append(coord.toString())
                 .append("\n"));
@@ -517,22 +1539,22 @@ public class Pieces {
     /**
      * Сравнивает два объекта Pieces на равенство
      * @param o объект для сравнения
-     * @return true если объекты равны (содержат одинаковые фигуры)
+     * @return true если объекты равны (содержат одинаковые фигуры на тех же полях и совпадают ключи позиции)
      */
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Pieces pieces1 = (Pieces) o;
-        return Objects.equals(pieces, pieces1.pieces);
+        return key == pieces1.key && Arrays.equals(board, pieces1.board);
     }
 
     /**
      * Возвращает хэш-код объекта Pieces
-     * @return хэш-код на основе карты фигур
+     * @return хэш-код на основе ключа Zobrist позиции
      */
     @Override
     public int hashCode() {
-        return Objects.hash(pieces);
+        return Long.hashCode(key);
     }
 }
@@ -0,0 +1,104 @@
+package org.example;
+
+
+import java.util.Arrays;
+
+/**
+ * Счетчик повторений позиций по ключам Zobrist.
+ * Хранит только позиции после последнего необратимого хода (взятия, хода пешки
+ * или потери права на рокировку): более ранние позиции повториться уже не могут.
+ * Ключи лежат в открытой хэш-таблице на примитивных массивах, поэтому
+ * добавление и проверка позиции стоят O(1).
+ */
+public class RepetitionTracker {
+
+    private static final int initialCapacity = 64;
+
+    private long[] keys = new long[initialCapacity];
+    private int[] counts = new int[initialCapacity];
+    private int size;
+
+    /**
+     * Конструктор пустого счетчика
+     */
+    public RepetitionTracker() {
+    }
+
+    /**
+     * Конструктор копирования
+     * @param original оригинальный счетчик для копирования
+     */
+    public RepetitionTracker(RepetitionTracker original) {
+        keys = original.keys.clone();
+        counts = original.counts.clone();
+        size = original.size;
+    }
+
+    /**
+     * Отмечает очередное появление позиции
+     * @param key ключ позиции
+     * @return сколько раз позиция встретилась с последнего необратимого хода
+     */
+    public int add(long key) {
+        if ((size + 1) * 2 > keys.length)
+            grow();
+
+        int slot = find(keys, counts, key);
+        if (counts[slot] == 0) {
+            keys[slot] = key;
+            size++;
+        }
+        return ++counts[slot];
+    }
+
+    /**
+     * Получает число появлений позиции с последнего необратимого хода
+     * @param key ключ позиции
+     * @return число появлений позиции
+     */
+    public int count(long key) {
+        return counts[find(keys, counts, key)];
+    }
+
+    /**
+     * Забывает все позиции, например после необратимого хода
+     */
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(counts, 0);
+            size = 0;
+        }
+    }
+
+    /**
+     * Находит ячейку с ключом или первую свободную ячейку, в которую его можно положить
+     * @param keys массив ключей
+     * @param counts массив счетчиков, 0 означает свободную ячейку
+     * @param key искомый ключ
+     * @return индекс ячейки
+     */
+    private static int find(long[] keys, int[] counts, long key) {
+        int mask = keys.length - 1;
+        int slot = (int) (key ^ (key >>> 32)) & mask;
+        while (counts[slot] != 0 && keys[slot] != key)
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    /**
+     * Увеличивает таблицу вдвое, перекладывая все ключи
+     */
+    private void grow() {
+        long[] newKeys = new long[keys.length * 2];
+        int[] newCounts = new int[counts.length * 2];
+        for (int i = 0; i < keys.length; i++) {
+            if (counts[i] != 0) {
+                int slot = find(newKeys, newCounts, keys[i]);
+                newKeys[slot] = keys[i];
+                newCounts[slot] = counts[i];
+            }
+        }
+        keys = newKeys;
+        counts = newCounts;
+    }
+}
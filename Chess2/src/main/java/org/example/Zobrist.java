@@ -0,0 +1,98 @@
+package org.example;
+
+
+import org.example.COLOUR;
+import org.example.ID;
+
+/**
+ * Случайные 64-битные ключи Zobrist для хэширования позиции.
+ * Ключ позиции равен XOR ключей всех фигур на их полях, ключа очереди хода черных,
+ * ключа прав на рокировку и ключа вертикали взятия на проходе.
+ * Ключи генерируются с фиксированным зерном, поэтому совпадают между запусками.
+ */
+public class Zobrist {
+
+    private static final long[][] pieceKeys = new long[2 * Bitboards.TYPES][Bitboards.SQUARES];
+    private static final long[] castlingKeys = new long[16];
+    private static final long[] enPassantKeys = new long[Bitboards.FILES];
+    private static final long blackToMove;
+
+    static {
+        long seed = 0x2545F4914F6CDD1DL;
+        for (long[] keys : pieceKeys) {
+            for (int square = 0; square < keys.length; square++) {
+                seed = next(seed);
+                keys[square] = scramble(seed);
+            }
+        }
+        for (int rights = 0; rights < castlingKeys.length; rights++) {
+            seed = next(seed);
+            castlingKeys[rights] = rights == 0 ? 0L : scramble(seed);
+        }
+        for (int file = 0; file < enPassantKeys.length; file++) {
+            seed = next(seed);
+            enPassantKeys[file] = scramble(seed);
+        }
+        seed = next(seed);
+        blackToMove = scramble(seed);
+    }
+
+    /**
+     * Следующее состояние генератора xorshift
+     * @param state текущее состояние
+     * @return новое состояние
+     */
+    private static long next(long state) {
+        state ^= state >>> 12;
+        state ^= state << 25;
+        state ^= state >>> 27;
+        return state;
+    }
+
+    /**
+     * Перемешивает состояние генератора в выходное значение (xorshift64*)
+     * @param state состояние генератора
+     * @return случайный ключ
+     */
+    private static long scramble(long state) {
+        return state * 0x2545F4914F6CDD1DL;
+    }
+
+    /**
+     * Получает ключ фигуры на поле
+     * @param colour цвет фигуры
+     * @param name тип фигуры
+     * @param square индекс поля
+     * @return ключ фигуры на поле
+     */
+    public static long piece(COLOUR colour, ID name, int square) {
+        return pieceKeys[Bitboards.index(colour, name)][square];
+    }
+
+    /**
+     * Получает ключ прав на рокировку
+     * @param castlingRights комбинация флагов рокировки из Pieces
+     * @return ключ прав на рокировку
+     */
+    public static long castling(int castlingRights) {
+        return castlingKeys[castlingRights];
+    }
+
+    /**
+     * Получает ключ поля взятия на проходе
+     * @param square индекс поля или Bitboards.NO_SQUARE
+     * @return ключ вертикали поля или 0, если взятие на проходе невозможно
+     */
+    public static long enPassant(int square) {
+        return square == Bitboards.NO_SQUARE ? 0L : enPassantKeys[square % Bitboards.FILES];
+    }
+
+    /**
+     * Получает ключ очереди хода
+     * @param sideToMove цвет, чей сейчас ход
+     * @return ключ хода черных или 0 для хода белых
+     */
+    public static long side(COLOUR sideToMove) {
+        return sideToMove == COLOUR.B ? blackToMove : 0L;
+    }
+}
@@ -0,0 +1,394 @@
+package org.example.engine;
+
+
+import org.example.Bitboards;
+import org.example.Boards;
+import org.example.COLOUR;
+import org.example.ID;
+import org.example.MoveUndo;
+import org.example.PackedMove;
+import org.example.Piece;
+import org.example.Pieces;
+
+/**
+ * Генерация и выполнение упакованных ходов для поиска.
+ * Ходы записываются в заранее выделенный список вместе с флагами взятия, взятия на проходе,
+ * рокировки и хода пешки на два поля; превращение пешки дает ход на каждую фигуру.
+ * Ходы строятся по битбордам Pieces, вычисленные ходы фигур (Piece.getTargets) не используются.
+ * Взятия и тихие ходы можно получать отдельно, чтобы не генерировать тихие ходы в узлах,
+ * где отсечение случается раньше.
+ */
+public class MoveGenerator {
+
+    /** Наибольшее число ходов в одной позиции */
+    public static final int MAX_MOVES = 256;
+
+    private static final ID[] promotionTypes = {ID.QUEEN, ID.ROOK, ID.BISHOP, ID.KNIGHT};
+
+    /**
+     * Записывает все допустимые ходы стороны, чей сейчас ход
+     * @param pieces позиция
+     * @param moves список для ходов, очищается
+     * @return число записанных ходов
+     */
+    public static int generate(Pieces pieces, MoveList moves) {
+        return generate(pieces, moves, true, true);
+    }
+
+    /**
+     * Записывает взятия и превращения в ферзя стороны, чей сейчас ход
+     * @param pieces позиция
+     * @param moves список для ходов, очищается
+     * @return число записанных ходов
+     */
+    public static int generateCaptures(Pieces pieces, MoveList moves) {
+        return generate(pieces, moves, true, false);
+    }
+
+    /**
+     * Записывает остальные ходы: тихие ходы и превращения не в ферзя
+     * @param pieces позиция
+     * @param moves список для ходов, очищается
+     * @return число записанных ходов
+     */
+    public static int generateQuiets(Pieces pieces, MoveList moves) {
+        return generate(pieces, moves, false, true);
+    }
+
+    /**
+     * Записывает допустимые ходы выбранных видов. Поля назначения берутся из битбордов атак
+     * и продвижений пешек, а допустимость проверяется по атакам на короля после хода,
+     * поэтому генерация не вычисляет ходы фигур и не создает объектов
+     * @param pieces позиция
+     * @param moves список для ходов, очищается
+     * @param captures записывать ли взятия и превращения в ферзя
+     * @param quiets записывать ли остальные ходы
+     * @return число записанных ходов
+     */
+    private static int generate(Pieces pieces, MoveList moves, boolean captures, boolean quiets) {
+        moves.clear();
+        long own = pieces.getColourBitboard(pieces.getSideToMove());
+
+        while (own != 0) {
+            int from = Long.numberOfTrailingZeros(own);
+            own &= own - 1;
+            addMoves(pieces, from, moves, captures, quiets);
+        }
+        return moves.size();
+    }
+
+    /**
+     * Добавляет допустимые ходы одной фигуры, например когда по записи хода
+     * уже известно, какие фигуры могли его сделать. Список не очищается
+     * @param pieces позиция
+     * @param from индекс поля фигуры стороны, чей сейчас ход
+     * @param moves список для ходов
+     * @return число ходов в списке
+     */
+    public static int generateFrom(Pieces pieces, int from, MoveList moves) {
+        addMoves(pieces, from, moves, true, true);
+        return moves.size();
+    }
+
+    /**
+     * Добавляет допустимые ходы фигуры выбранных видов
+     * @param pieces позиция
+     * @param from индекс поля фигуры
+     * @param moves список для ходов
+     * @param captures добавлять ли взятия и превращения в ферзя
+     * @param quiets добавлять ли остальные ходы
+     */
+    private static void addMoves(Pieces pieces, int from, MoveList moves, boolean captures, boolean quiets) {
+        Piece piece = pieces.getPiece(from);
+        ID name = piece.getName();
+        COLOUR side = piece.getColour();
+        long attacks = pieces.getAttacks(from, name, side);
+        if (name == ID.PAWN) {
+            addPawnMoves(pieces, piece, from, attacks, moves, captures, quiets);
+            return;
+        }
+
+        long enemy = pieces.getColourBitboard(COLOUR.not(side));
+        long targets = attacks & ((captures ? enemy : 0L) | (quiets ? ~pieces.getOccupied() : 0L));
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            if (leavesKingSafe(pieces, side, from, to, to))
+                moves.add(PackedMove.encode(from, to, null, (enemy & Bitboards.bit(to)) != 0 ? PackedMove.CAPTURE : 0));
+        }
+
+        if (quiets && name == ID.KING) {
+            if (canCastle(pieces, side, from, from + 2))
+                moves.add(PackedMove.encode(from, from + 2, null, PackedMove.CASTLE));
+            if (canCastle(pieces, side, from, from - 2))
+                moves.add(PackedMove.encode(from, from - 2, null, PackedMove.CASTLE));
+        }
+    }
+
+    /**
+     * Добавляет ходы пешки: взятия, взятие на проходе, продвижения и превращения
+     * @param pieces позиция
+     * @param pawn пешка
+     * @param from индекс поля пешки
+     * @param attacks поля, которые бьет пешка
+     * @param moves список для ходов
+     * @param captures добавлять ли взятия и превращения в ферзя
+     * @param quiets добавлять ли остальные ходы
+     */
+    private static void addPawnMoves(Pieces pieces, Piece pawn, int from, long attacks, MoveList moves,
+                                     boolean captures, boolean quiets) {
+        COLOUR side = pawn.getColour();
+        long targets = attacks & pieces.getColourBitboard(COLOUR.not(side));
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            if (!leavesKingSafe(pieces, side, from, to, to))
+                continue;
+            if (promotes(pawn, to))
+                addPromotions(from, to, PackedMove.CAPTURE, moves, captures, quiets);
+            else if (captures)
+                moves.add(PackedMove.encode(from, to, null, PackedMove.CAPTURE));
+        }
+
+        int enPassant = pieces.getEnPassantSquare();
+        if (captures && enPassant != Bitboards.NO_SQUARE && (attacks & Bitboards.bit(enPassant)) != 0
+                && leavesKingSafe(pieces, side, from, enPassant, enPassant - forward(side)))
+            moves.add(PackedMove.encode(from, enPassant, null, PackedMove.CAPTURE | PackedMove.EN_PASSANT));
+
+        int push = from + forward(side);
+        long occupied = pieces.getOccupied();
+        if (push < 0 || push >= Bitboards.SQUARES || (occupied & Bitboards.bit(push)) != 0)
+            return;
+        if (promotes(pawn, push)) {
+            if (leavesKingSafe(pieces, side, from, push, push))
+                addPromotions(from, push, 0, moves, captures, quiets);
+            return;
+        }
+        if (!quiets)
+            return;
+        if (leavesKingSafe(pieces, side, from, push, push))
+            moves.add(PackedMove.encode(from, push, null, 0));
+
+        int doublePush = push + forward(side);
+        int startRank = side == COLOUR.W ? 2 : Bitboards.RANKS - 1;
+        if (Bitboards.rankOf(from) == startRank && (occupied & Bitboards.bit(doublePush)) == 0
+                && leavesKingSafe(pieces, side, from, doublePush, doublePush))
+            moves.add(PackedMove.encode(from, doublePush, null, PackedMove.DOUBLE_PUSH));
+    }
+
+    /**
+     * Добавляет превращения пешки: в ферзя среди взятий, в остальные фигуры среди тихих ходов
+     * @param from индекс поля пешки
+     * @param to индекс поля превращения
+     * @param flags флаг взятия или 0
+     * @param moves список для ходов
+     * @param captures добавлять ли превращение в ферзя
+     * @param quiets добавлять ли превращения в остальные фигуры
+     */
+    private static void addPromotions(int from, int to, int flags, MoveList moves, boolean captures, boolean quiets) {
+        for (ID promotion : promotionTypes) {
+            if (promotion == ID.QUEEN ? captures : quiets)
+                moves.add(PackedMove.encode(from, to, promotion, flags));
+        }
+    }
+
+    /**
+     * Проверяет, может ли король рокироваться: право на рокировку не потеряно, ладья на месте,
+     * поля между ними пусты, а король не под шахом и не проходит через атакованное поле
+     * @param pieces позиция
+     * @param side цвет короля
+     * @param from индекс поля короля
+     * @param to поле короля после рокировки, на два поля в сторону ладьи
+     * @return true если рокировка допустима
+     */
+    private static boolean canCastle(Pieces pieces, COLOUR side, int from, int to) {
+        boolean kingside = to > from;
+        int homeRank = side == COLOUR.W ? 1 : Bitboards.RANKS;
+        if (from != Bitboards.square('e', homeRank))
+            return false;
+        int right = side == COLOUR.W
+                ? (kingside ? Pieces.WHITE_KINGSIDE : Pieces.WHITE_QUEENSIDE)
+                : (kingside ? Pieces.BLACK_KINGSIDE : Pieces.BLACK_QUEENSIDE);
+        if ((pieces.getCastlingRights() & right) == 0)
+            return false;
+
+        int rankStart = from - from % Bitboards.FILES;
+        int rookFrom = kingside ? rankStart + Bitboards.FILES - 1 : rankStart;
+        if ((pieces.getBitboard(side, ID.ROOK) & Bitboards.bit(rookFrom)) == 0)
+            return false;
+        long between = Bitboards.bit(Math.max(from, rookFrom)) - Bitboards.bit(Math.min(from, rookFrom) + 1);
+        if ((pieces.getOccupied() & between) != 0)
+            return false;
+
+        COLOUR enemy = COLOUR.not(side);
+        return !pieces.isSquareAttacked(from, enemy) && !pieces.isSquareAttacked((from + to) / 2, enemy)
+                && !pieces.isSquareAttacked(to, enemy);
+    }
+
+    /**
+     * Вычисляет флаги хода фигуры по позиции
+     * @param pieces позиция до хода
+     * @param piece фигура, делающая ход
+     * @param from индекс исходного поля
+     * @param to индекс поля назначения
+     * @return комбинация флагов PackedMove
+     */
+    private static int flags(Pieces pieces, Piece piece, int from, int to) {
+        int flags = pieces.getPiece(to) != null ? PackedMove.CAPTURE : 0;
+        switch (piece.getName()) {
+            case PAWN:
+                if (to == pieces.getEnPassantSquare() && flags == 0)
+                    flags |= PackedMove.CAPTURE | PackedMove.EN_PASSANT;
+                if (Math.abs(to - from) == 2 * Bitboards.FILES)
+                    flags |= PackedMove.DOUBLE_PUSH;
+                return flags;
+            case KING:
+                if (Math.abs(to - from) == 2)
+                    flags |= PackedMove.CASTLE;
+                return flags;
+            default:
+                return flags;
+        }
+    }
+
+    /**
+     * Проверяет, превращается ли пешка, дойдя до поля
+     * @param pawn пешка
+     * @param to индекс поля назначения
+     * @return true если поле на последней для пешки горизонтали
+     */
+    private static boolean promotes(Piece pawn, int to) {
+        return Bitboards.rankOf(to) == (pawn.getColour() == COLOUR.W ? Bitboards.RANKS : 1);
+    }
+
+    /**
+     * Проверяет, допустим ли ход в позиции, например ход из таблицы перестановок
+     * или ход-убийца, найденный в другой позиции. Флаги хода тоже должны совпадать с позицией
+     * @param pieces позиция
+     * @param move упакованный ход
+     * @return true если ход допустим для стороны, чей сейчас ход
+     */
+    public static boolean isLegal(Pieces pieces, int move) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        Piece piece = pieces.getPiece(from);
+        if (piece == null || piece.getColour() != pieces.getSideToMove())
+            return false;
+
+        boolean promotes = piece.getName() == ID.PAWN && promotes(piece, to);
+        ID promotion = PackedMove.promotion(move);
+        if (promotes != (promotion != null) || promotion == ID.KING || promotion == ID.PAWN)
+            return false;
+        int flags = PackedMove.flags(move);
+        if (flags != flags(pieces, piece, from, to))
+            return false;
+        COLOUR side = piece.getColour();
+        if ((flags & PackedMove.CASTLE) != 0)
+            return canCastle(pieces, side, from, to);
+
+        if ((pieces.getColourBitboard(side) & Bitboards.bit(to)) != 0 || !reaches(pieces, piece, from, to))
+            return false;
+        int captured = (flags & PackedMove.EN_PASSANT) != 0 ? to - forward(side) : to;
+        return leavesKingSafe(pieces, side, from, to, captured);
+    }
+
+    /**
+     * Проверяет по битбордам, может ли фигура попасть на поле без учета шаха своему королю
+     * @param pieces позиция
+     * @param piece фигура на исходном поле
+     * @param from индекс исходного поля
+     * @param to индекс поля назначения, не занятого своей фигурой
+     * @return true если поле бьется фигурой или, для пешки, доступно продвижением
+     */
+    private static boolean reaches(Pieces pieces, Piece piece, int from, int to) {
+        COLOUR side = piece.getColour();
+        long attacks = pieces.getAttacks(from, piece.getName(), side);
+        if (piece.getName() != ID.PAWN)
+            return (attacks & Bitboards.bit(to)) != 0;
+        if (pieces.getPiece(to) != null || to == pieces.getEnPassantSquare())
+            return (attacks & Bitboards.bit(to)) != 0;
+
+        int step = from + forward(side);
+        if (to == step)
+            return true;
+        int startRank = side == COLOUR.W ? 2 : Bitboards.RANKS - 1;
+        return to == step + forward(side) && Bitboards.rankOf(from) == startRank
+                && (pieces.getOccupied() & Bitboards.bit(step)) == 0;
+    }
+
+    /**
+     * Проверяет, что после хода свой король не окажется под ударом.
+     * Ход не выполняется: атаки на короля строятся по занятости доски после хода
+     * @param pieces позиция до хода
+     * @param side сторона, делающая ход
+     * @param from индекс исходного поля
+     * @param to индекс поля назначения
+     * @param captured индекс поля взятой фигуры; для хода без взятия равен to
+     * @return true если ход не оставляет короля под шахом
+     */
+    private static boolean leavesKingSafe(Pieces pieces, COLOUR side, int from, int to, int captured) {
+        long king = pieces.getBitboard(side, ID.KING);
+        if (king == 0)
+            return true;
+        int kingSquare = (king & Bitboards.bit(from)) != 0 ? to : Long.numberOfTrailingZeros(king);
+        long occupancy = (pieces.getOccupied() & ~Bitboards.bit(from) & ~Bitboards.bit(captured)) | Bitboards.bit(to);
+        long enemy = pieces.getColourBitboard(COLOUR.not(side)) & ~Bitboards.bit(captured);
+        return (pieces.attackersTo(kingSquare, occupancy) & enemy) == 0;
+    }
+
+    /**
+     * Получает сдвиг индекса поля на одну горизонталь вперед для пешки
+     * @param side цвет пешки
+     * @return сдвиг индекса поля
+     */
+    private static int forward(COLOUR side) {
+        return side == COLOUR.W ? Bitboards.FILES : -Bitboards.FILES;
+    }
+
+    /**
+     * Получает фигуру, которую бьет ход
+     * @param pieces позиция до хода
+     * @param move упакованный ход
+     * @return тип взятой фигуры или null для тихого хода
+     */
+    public static ID capturedType(Pieces pieces, int move) {
+        int to = PackedMove.to(move);
+        Piece target = pieces.getPiece(to);
+        if (target != null)
+            return target.getName();
+
+        Piece piece = pieces.getPiece(PackedMove.from(move));
+        if (piece.getName() == ID.PAWN && to == pieces.getEnPassantSquare())
+            return ID.PAWN;
+        return null;
+    }
+
+    /**
+     * Выполняет упакованный ход на позиции
+     * @param pieces позиция
+     * @param move упакованный ход из генератора
+     * @return запись для отмены хода
+     */
+    public static MoveUndo make(Pieces pieces, int move) {
+        MoveUndo undo = new MoveUndo();
+        make(pieces, move, undo);
+        return undo;
+    }
+
+    /**
+     * Выполняет упакованный ход на позиции, заполняя готовую запись для отмены.
+     * Новая фигура создается только при превращении пешки
+     * @param pieces позиция
+     * @param move упакованный ход из генератора
+     * @param undo запись для отмены хода, перезаписывается
+     */
+    public static void make(Pieces pieces, int move, MoveUndo undo) {
+        ID promotion = PackedMove.promotion(move);
+        Piece toPromote = null;
+        if (promotion != null) {
+            Piece pawn = pieces.getPiece(PackedMove.from(move));
+            toPromote = Boards.createPiece(promotion, pawn.getColour(), Bitboards.toCoordinate(PackedMove.to(move)));
+        }
+        pieces.make(move, toPromote, undo);
+    }
+}
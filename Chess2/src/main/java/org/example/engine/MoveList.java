@@ -0,0 +1,76 @@
+package org.example.engine;
+
+
+/**
+ * Список упакованных ходов с оценками для сортировки поверх массивов int.
+ * Создается один раз на уровень поиска и очищается перед каждой генерацией,
+ * поэтому сам список при генерации и переборе ходов ничего не выделяет.
+ */
+public class MoveList {
+
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+    private final int[] scores = new int[MoveGenerator.MAX_MOVES];
+    private int size;
+
+    /**
+     * Очищает список
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Добавляет ход в конец списка
+     * @param move упакованный ход
+     */
+    public void add(int move) {
+        moves[size++] = move;
+    }
+
+    /**
+     * Получает число ходов в списке
+     * @return число ходов
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Получает ход по индексу
+     * @param index индекс хода
+     * @return упакованный ход
+     */
+    public int get(int index) {
+        return moves[index];
+    }
+
+    /**
+     * Задает оценку хода для сортировки
+     * @param index индекс хода
+     * @param score оценка
+     */
+    public void setScore(int index, int score) {
+        scores[index] = score;
+    }
+
+    /**
+     * Переставляет на место start ход с наибольшей оценкой среди оставшихся.
+     * Полная сортировка не нужна: после отсечения остальные ходы не просматриваются
+     * @param start индекс первого непросмотренного хода
+     * @return ход с наибольшей оценкой
+     */
+    public int pick(int start) {
+        int best = start;
+        for (int i = start + 1; i < size; i++) {
+            if (scores[i] > scores[best])
+                best = i;
+        }
+        int move = moves[best];
+        moves[best] = moves[start];
+        moves[start] = move;
+        int score = scores[best];
+        scores[best] = scores[start];
+        scores[start] = score;
+        return move;
+    }
+}
@@ -0,0 +1,106 @@
+package org.example.engine;
+
+
+import org.example.Bitboards;
+import org.example.COLOUR;
+import org.example.ID;
+import org.example.PackedMove;
+import org.example.PieceSquareTables;
+import org.example.Pieces;
+
+import java.util.Arrays;
+
+/**
+ * Данные для упорядочивания ходов в альфа-бета поиске: оценка взятий по схеме MVV-LVA
+ * (самая ценная жертва, самый дешевый нападающий), ходы-убийцы каждого уровня
+ * и история отсечений тихих ходов. Порядок этапов задает MovePicker.
+ */
+public class MoveOrdering {
+
+    private static final int underPromotionScore = -1;
+    private static final int historyLimit = 1 << 20;
+
+    private final int[][] killers = new int[Search.MAX_PLY][2];
+    private final int[][][] history = new int[2][Bitboards.SQUARES][Bitboards.SQUARES];
+
+    /**
+     * Забывает ходы-убийцы и историю, например перед новой партией
+     */
+    public void clear() {
+        for (int[] ply : killers) {
+            ply[0] = Search.NO_MOVE;
+            ply[1] = Search.NO_MOVE;
+        }
+        for (int[][] colour : history) {
+            for (int[] from : colour)
+                Arrays.fill(from, 0);
+        }
+    }
+
+    /**
+     * Получает ход-убийцу уровня
+     * @param ply расстояние от корня поиска
+     * @param slot 0 для последнего хода-убийцы, 1 для предыдущего
+     * @return упакованный ход или Search.NO_MOVE
+     */
+    public int getKiller(int ply, int slot) {
+        return killers[ply][slot];
+    }
+
+    /**
+     * Оценивает взятие или превращение для сортировки по MVV-LVA
+     * @param pieces позиция до хода
+     * @param move упакованный ход
+     * @return оценка хода, больше для более ценной жертвы и более дешевого нападающего
+     */
+    public int captureScore(Pieces pieces, int move) {
+        ID captured = MoveGenerator.capturedType(pieces, move);
+        ID promotion = PackedMove.promotion(move);
+        int score = promotion == null ? 0 : PieceSquareTables.value(promotion);
+        if (captured == null)
+            return score;
+        // ID перечислены от короля к пешке, поэтому больший ordinal у более дешевого нападающего
+        ID attacker = pieces.getPiece(PackedMove.from(move)).getName();
+        return score + PieceSquareTables.value(captured) * 16 + attacker.ordinal();
+    }
+
+    /**
+     * Оценивает тихий ход для сортировки по истории отсечений.
+     * Превращения не в ферзя идут после всех тихих ходов
+     * @param pieces позиция до хода
+     * @param move упакованный ход
+     * @return оценка хода
+     */
+    public int quietScore(Pieces pieces, int move) {
+        if (PackedMove.promotion(move) != null)
+            return underPromotionScore;
+        int side = pieces.getSideToMove().ordinal();
+        return history[side][PackedMove.from(move)][PackedMove.to(move)];
+    }
+
+    /**
+     * Запоминает тихий ход, вызвавший отсечение
+     * @param colour цвет стороны, сделавшей ход
+     * @param move упакованный ход
+     * @param ply расстояние от корня поиска
+     * @param depth оставшаяся глубина
+     */
+    public void addCutoff(COLOUR colour, int move, int ply, int depth) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+
+        int[] fromHistory = history[colour.ordinal()][PackedMove.from(move)];
+        int to = PackedMove.to(move);
+        fromHistory[to] += depth * depth;
+        if (fromHistory[to] > historyLimit) {
+            for (int[][] side : history) {
+                for (int[] from : side) {
+                    for (int i = 0; i < from.length; i++)
+                        from[i] /= 2;
+                }
+            }
+        }
+    }
+}
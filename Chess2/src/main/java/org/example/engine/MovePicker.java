@@ -0,0 +1,154 @@
+package org.example.engine;
+
+
+import org.example.PackedMove;
+import org.example.Pieces;
+
+/**
+ * Поэтапная выдача ходов узла поиска: ход из таблицы перестановок, выгодные взятия
+ * по MVV-LVA, ходы-убийцы, тихие ходы по истории и в конце взятия, теряющие материал по SEE.
+ * Каждый этап генерируется только когда поиск запросил следующий ход, поэтому
+ * при отсечении на раннем ходе тихие ходы узла не генерируются вовсе. Все этапы строят
+ * и проверяют ходы по битбордам, без вычисления ходов фигур, и не выделяют памяти.
+ * Объект переиспользуется: у поиска по одному объекту на уровень.
+ */
+public class MovePicker {
+
+    private static final int hashStage = 0;
+    private static final int generateCapturesStage = 1;
+    private static final int goodCapturesStage = 2;
+    private static final int firstKillerStage = 3;
+    private static final int secondKillerStage = 4;
+    private static final int generateQuietsStage = 5;
+    private static final int quietsStage = 6;
+    private static final int badCapturesStage = 7;
+    private static final int doneStage = 8;
+
+    private final MoveList moves = new MoveList();
+    private final int[] badCaptures = new int[MoveGenerator.MAX_MOVES];
+    private final int[] exchangeGains = new int[StaticExchange.MAX_SWAPS];
+    private final MoveOrdering ordering;
+
+    private Pieces pieces;
+    private int hashMove;
+    private int firstKiller;
+    private int secondKiller;
+    private boolean capturesOnly;
+    private int stage;
+    private int index;
+    private int badCount;
+    private int badIndex;
+
+    /**
+     * Конструктор выдачи ходов
+     * @param ordering ходы-убийцы и история отсечений поиска
+     */
+    public MovePicker(MoveOrdering ordering) {
+        this.ordering = ordering;
+    }
+
+    /**
+     * Начинает выдачу ходов нового узла
+     * @param pieces позиция узла
+     * @param hashMove ход из таблицы перестановок или Search.NO_MOVE
+     * @param ply расстояние от корня поиска
+     * @param capturesOnly выдавать только выгодные взятия и превращения в ферзя
+     */
+    public void init(Pieces pieces, int hashMove, int ply, boolean capturesOnly) {
+        this.pieces = pieces;
+        this.hashMove = hashMove;
+        this.firstKiller = ordering.getKiller(ply, 0);
+        this.secondKiller = ordering.getKiller(ply, 1);
+        this.capturesOnly = capturesOnly;
+        this.stage = hashStage;
+        this.badCount = 0;
+        this.badIndex = 0;
+    }
+
+    /**
+     * Получает следующий ход узла
+     * @return упакованный ход или Search.NO_MOVE, если ходы кончились
+     */
+    public int next() {
+        while (true) {
+            switch (stage) {
+                case hashStage:
+                    stage = generateCapturesStage;
+                    if (hashMove != Search.NO_MOVE && MoveGenerator.isLegal(pieces, hashMove)
+                            && (!capturesOnly || !PackedMove.isQuiet(hashMove)))
+                        return hashMove;
+                    break;
+
+                case generateCapturesStage:
+                    MoveGenerator.generateCaptures(pieces, moves);
+                    for (int i = 0; i < moves.size(); i++)
+                        moves.setScore(i, ordering.captureScore(pieces, moves.get(i)));
+                    index = 0;
+                    stage = goodCapturesStage;
+                    break;
+
+                case goodCapturesStage:
+                    while (index < moves.size()) {
+                        int move = moves.pick(index++);
+                        if (move == hashMove)
+                            continue;
+                        if (StaticExchange.evaluate(pieces, move, exchangeGains) < 0) {
+                            badCaptures[badCount++] = move;
+                            continue;
+                        }
+                        return move;
+                    }
+                    stage = capturesOnly ? doneStage : firstKillerStage;
+                    break;
+
+                case firstKillerStage:
+                    stage = secondKillerStage;
+                    if (isUsableKiller(firstKiller))
+                        return firstKiller;
+                    break;
+
+                case secondKillerStage:
+                    stage = generateQuietsStage;
+                    if (isUsableKiller(secondKiller))
+                        return secondKiller;
+                    break;
+
+                case generateQuietsStage:
+                    MoveGenerator.generateQuiets(pieces, moves);
+                    for (int i = 0; i < moves.size(); i++)
+                        moves.setScore(i, ordering.quietScore(pieces, moves.get(i)));
+                    index = 0;
+                    stage = quietsStage;
+                    break;
+
+                case quietsStage:
+                    while (index < moves.size()) {
+                        int move = moves.pick(index++);
+                        if (move != hashMove && move != firstKiller && move != secondKiller)
+                            return move;
+                    }
+                    stage = badCapturesStage;
+                    break;
+
+                case badCapturesStage:
+                    if (badIndex < badCount)
+                        return badCaptures[badIndex++];
+                    stage = doneStage;
+                    break;
+
+                default:
+                    return Search.NO_MOVE;
+            }
+        }
+    }
+
+    /**
+     * Проверяет, можно ли выдать ход-убийцу в этом узле
+     * @param killer ход-убийца уровня
+     * @return true если ход еще не выдан, допустим и остается тихим
+     */
+    private boolean isUsableKiller(int killer) {
+        return killer != Search.NO_MOVE && killer != hashMove
+                && PackedMove.isQuiet(killer) && MoveGenerator.isLegal(pieces, killer);
+    }
+}
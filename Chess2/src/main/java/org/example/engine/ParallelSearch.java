@@ -0,0 +1,175 @@
+package org.example.engine;
+
+
+import org.example.PackedMove;
+import org.example.Pieces;
+
+/**
+ * Многопоточный поиск по схеме Lazy SMP.
+ * Все потоки ищут из одного корня на собственных копиях позиции и обмениваются
+ * результатами только через общую таблицу перестановок. Копии делаются в вызывающем
+ * потоке до запуска вспомогательных. Каждый вспомогательный поток пропускает глубины
+ * итеративного углубления по своему образцу, зависящему от его номера, поэтому потоки
+ * одновременно ищут на разных глубинах и заполняют таблицу для основного потока.
+ *
+ * Замер времени до глубины: java org.example.engine.ParallelSearch [глубина] [потоки...]
+ */
+public class ParallelSearch {
+
+    private static final int defaultTableMegabytes = 64;
+
+    private final TranspositionTable table;
+    private final Search[] searches;
+
+    /**
+     * Конструктор многопоточного поиска
+     * @param threads число потоков, включая вызывающий
+     * @param tableMegabytes размер общей таблицы перестановок в мегабайтах
+     * @throws IllegalArgumentException если число потоков меньше 1
+     */
+    public ParallelSearch(int threads, int tableMegabytes) {
+        if (threads < 1)
+            throw new IllegalArgumentException("Число потоков должно быть не меньше 1.");
+
+        table = new TranspositionTable(tableMegabytes);
+        searches = new Search[threads];
+        for (int i = 0; i < threads; i++)
+            searches[i] = new Search(table);
+    }
+
+    /**
+     * Получает общую таблицу перестановок
+     * @return таблица перестановок
+     */
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    /**
+     * Получает число потоков поиска
+     * @return число потоков
+     */
+    public int getThreads() {
+        return searches.length;
+    }
+
+    /**
+     * Ищет лучший ход для стороны, чей сейчас ход. Основной поиск идет в вызывающем потоке,
+     * вспомогательные останавливаются, как только он закончит
+     * @param position позиция, не изменяется
+     * @param limits ограничения поиска
+     * @return результат самой глубокой завершенной итерации среди всех потоков
+     */
+    public SearchResult search(Pieces position, SearchLimits limits) {
+        table.newSearch();
+        for (Search search : searches)
+            search.prepare();
+
+        // Копия позиции читает общий объект, поэтому все копии делаются до запуска потоков
+        Pieces[] copies = new Pieces[searches.length];
+        for (int i = 0; i < searches.length; i++)
+            copies[i] = new Pieces(position);
+
+        Thread[] helpers = new Thread[searches.length - 1];
+        SearchResult[] results = new SearchResult[searches.length];
+        for (int i = 1; i < searches.length; i++) {
+            int index = i;
+            helpers[i - 1] = new Thread(() -> results[index] = searches[index].run(copies[index], limits, index),
+                    "search-helper-" + i);
+            helpers[i - 1].setDaemon(true);
+            helpers[i - 1].start();
+        }
+
+        results[0] = searches[0].run(copies[0], limits, 0);
+
+        for (int i = 1; i < searches.length; i++)
+            searches[i].stop();
+        for (Thread helper : helpers) {
+            try {
+                helper.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        long nodes = 0;
+        SearchResult best = results[0];
+        for (int i = 0; i < searches.length; i++) {
+            nodes += searches[i].getNodes();
+            SearchResult result = results[i];
+            if (result != null && result.getBestMove() != Search.NO_MOVE && result.getDepth() > best.getDepth())
+                best = result;
+        }
+        return new SearchResult(best.getBestMove(), best.getScore(), best.getDepth(), nodes,
+                results[0].getTimeMillis(), best.getPrincipalVariation());
+    }
+
+    /**
+     * Останавливает идущий поиск во всех потоках
+     */
+    public void stop() {
+        for (Search search : searches)
+            search.stop();
+    }
+
+    /**
+     * Делает ходы вида "e2e4" от начальной позиции
+     * @param moves последовательность ходов
+     * @return позиция после ходов
+     */
+    private static Pieces play(String... moves) {
+        Pieces pieces = new Pieces();
+        MoveList legal = new MoveList();
+        for (String text : moves) {
+            int count = MoveGenerator.generate(pieces, legal);
+            int found = Search.NO_MOVE;
+            for (int i = 0; i < count && found == Search.NO_MOVE; i++) {
+                if (PackedMove.toString(legal.get(i)).equals(text))
+                    found = legal.get(i);
+            }
+            if (found == Search.NO_MOVE)
+                throw new IllegalArgumentException("Ход " + text + " недопустим в позиции.");
+            MoveGenerator.make(pieces, found);
+        }
+        return pieces;
+    }
+
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 7;
+        int[] threadCounts = {1, 2, 4, 8};
+        if (args.length > 1) {
+            threadCounts = new int[args.length - 1];
+            for (int i = 1; i < args.length; i++)
+                threadCounts[i - 1] = Integer.parseInt(args[i]);
+        }
+
+        Pieces[] positions = {
+                play(),
+                play("e2e4", "e7e5", "g1f3", "b8c6", "f1c4", "f8c5", "c2c3", "g8f6", "d2d3", "d7d6"),
+                play("d2d4", "d7d5", "c2c4", "e7e6", "b1c3", "g8f6", "c1g5", "f8e7", "e2e3", "e8g8")
+        };
+
+        // Прогрев, чтобы время первой строки не включало компиляцию кода
+        for (Pieces position : positions)
+            new ParallelSearch(1, defaultTableMegabytes).search(position, SearchLimits.depth(depth));
+
+        long baseline = 0;
+        for (int threads : threadCounts) {
+            long total = 0;
+            long nodes = 0;
+            double pawnHits = 0;
+            for (Pieces position : positions) {
+                ParallelSearch search = new ParallelSearch(threads, defaultTableMegabytes);
+                long start = System.nanoTime();
+                SearchResult result = search.search(position, SearchLimits.depth(depth));
+                total += System.nanoTime() - start;
+                nodes += result.getNodes();
+                pawnHits += search.searches[0].getEvaluator().getPawnTable().getHitRate();
+            }
+            if (baseline == 0)
+                baseline = total;
+            System.out.printf("Потоков %d: глубина %d за %.3f с, узлов %d, ускорение %.2f, попаданий в пешечный кэш %.1f%%%n",
+                    threads, depth, total / 1e9, nodes, (double) baseline / total, 100 * pawnHits / positions.length);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package org.example.engine;
+
+
+import java.util.Arrays;
+
+/**
+ * Кэш оценки пешечной структуры по ключу расстановки пешек.
+ * Пешки двигаются редко, поэтому в большинстве узлов поиска структура уже встречалась
+ * и ее оценка берется из таблицы. Записи лежат в параллельных массивах,
+ * новая запись всегда замещает старую с тем же индексом.
+ * Таблица не потокобезопасна: у каждого поиска своя таблица.
+ */
+public class PawnHashTable {
+
+    private final long[] keys;
+    private final int[] midgameScores;
+    private final int[] endgameScores;
+    private final long[] passedPawns;
+    private final boolean[] used;
+    private final int mask;
+
+    private long probes;
+    private long hits;
+
+    /**
+     * Конструктор таблицы
+     * @param entries число записей, округляется вниз до степени двойки
+     * @throws IllegalArgumentException если число записей не положительно
+     */
+    public PawnHashTable(int entries) {
+        if (entries <= 0)
+            throw new IllegalArgumentException("Размер таблицы должен быть положительным.");
+
+        int size = Integer.highestOneBit(entries);
+        keys = new long[size];
+        midgameScores = new int[size];
+        endgameScores = new int[size];
+        passedPawns = new long[size];
+        used = new boolean[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Ищет запись пешечной структуры и считает попадания
+     * @param pawnKey ключ расстановки пешек
+     * @return индекс записи или -1, если структуры нет в таблице
+     */
+    public int probe(long pawnKey) {
+        probes++;
+        int index = index(pawnKey);
+        if (used[index] && keys[index] == pawnKey) {
+            hits++;
+            return index;
+        }
+        return -1;
+    }
+
+    /**
+     * Сохраняет оценку пешечной структуры
+     * @param pawnKey ключ расстановки пешек
+     * @param midgame оценка для миттельшпиля, положительная в пользу белых
+     * @param endgame оценка для эндшпиля, положительная в пользу белых
+     * @param passed маска проходных пешек обоих цветов
+     * @return индекс записи
+     */
+    public int store(long pawnKey, int midgame, int endgame, long passed) {
+        int index = index(pawnKey);
+        keys[index] = pawnKey;
+        midgameScores[index] = midgame;
+        endgameScores[index] = endgame;
+        passedPawns[index] = passed;
+        used[index] = true;
+        return index;
+    }
+
+    /**
+     * Получает оценку записи для миттельшпиля
+     * @param index индекс записи
+     * @return оценка, положительная в пользу белых
+     */
+    public int getMidgame(int index) {
+        return midgameScores[index];
+    }
+
+    /**
+     * Получает оценку записи для эндшпиля
+     * @param index индекс записи
+     * @return оценка, положительная в пользу белых
+     */
+    public int getEndgame(int index) {
+        return endgameScores[index];
+    }
+
+    /**
+     * Получает проходные пешки записи
+     * @param index индекс записи
+     * @return маска проходных пешек обоих цветов
+     */
+    public long getPassedPawns(int index) {
+        return passedPawns[index];
+    }
+
+    /**
+     * Получает долю попаданий с последнего сброса счетчиков
+     * @return доля найденных записей от 0 до 1
+     */
+    public double getHitRate() {
+        return probes == 0 ? 0.0 : (double) hits / probes;
+    }
+
+    /**
+     * Получает число обращений к таблице с последнего сброса счетчиков
+     * @return число обращений
+     */
+    public long getProbes() {
+        return probes;
+    }
+
+    /**
+     * Обнуляет счетчики попаданий, записи сохраняются
+     */
+    public void resetStatistics() {
+        probes = 0;
+        hits = 0;
+    }
+
+    /**
+     * Очищает таблицу и счетчики
+     */
+    public void clear() {
+        Arrays.fill(used, false);
+        resetStatistics();
+    }
+
+    /**
+     * Получает индекс записи для ключа
+     * @param pawnKey ключ расстановки пешек
+     * @return индекс в массивах
+     */
+    private int index(long pawnKey) {
+        return (int) (pawnKey ^ (pawnKey >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,413 @@
+package org.example.engine;
+
+
+import org.example.COLOUR;
+import org.example.MoveUndo;
+import org.example.PackedMove;
+import org.example.Pieces;
+import org.example.RepetitionTracker;
+
+import java.util.Arrays;
+
+/**
+ * Поиск лучшего хода: итеративное углубление и альфа-бета в форме negamax
+ * с поиском главного варианта (PVS). Первый ход узла просматривается с полным окном,
+ * остальные с нулевым окном и пересматриваются только если оказались лучше.
+ * На концах вариантов поиск продолжается по взятиям, пока позиция не станет спокойной.
+ * Результаты узлов сохраняются в таблице перестановок, которую можно передать
+ * нескольким поискам сразу.
+ * Поиск работает на собственной копии позиции, исходный объект Pieces не изменяется.
+ */
+public class Search {
+
+    /** Наибольшая глубина поиска в полуходах */
+    public static final int MAX_PLY = 64;
+    /** Оценка мата в корне, мат через n полуходов оценивается как MATE - n */
+    public static final int MATE = 30000;
+    /** Отсутствующий ход */
+    public static final int NO_MOVE = 0;
+
+    private static final int infinity = MATE + 1;
+    private static final int checkInterval = 2048;
+    private static final int defaultTableMegabytes = 16;
+    private static final int mateBound = MATE - MAX_PLY;
+    /** Длина серий пропускаемых и просматриваемых глубин для вспомогательных потоков по номеру */
+    private static final int[] skipSize = {1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 3, 3, 4, 4, 4, 4, 4, 4, 4, 4};
+    /** Сдвиг серий для вспомогательных потоков по номеру */
+    private static final int[] skipPhase = {0, 1, 0, 1, 2, 3, 0, 1, 2, 3, 4, 5, 0, 1, 2, 3, 4, 5, 6, 7};
+
+    private final TranspositionTable table;
+    private final Evaluator evaluator = new Evaluator();
+    private final MoveOrdering ordering = new MoveOrdering();
+
+    private final MovePicker[] pickers = new MovePicker[MAX_PLY];
+    private final MoveUndo[] undos = new MoveUndo[MAX_PLY];
+    private final int[][] pv = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+    private final long[] pathKeys = new long[MAX_PLY + 1];
+
+    private Pieces pieces;
+    private RepetitionTracker gameKeys;
+    private SearchLimits limits;
+    private long startTime;
+    private long deadline;
+    private long nodes;
+    private volatile boolean stopped;
+
+    /**
+     * Конструктор поиска с собственной таблицей перестановок
+     */
+    public Search() {
+        this(new TranspositionTable(defaultTableMegabytes));
+    }
+
+    /**
+     * Конструктор поиска с заданной таблицей перестановок
+     * @param table таблица перестановок, может быть общей для нескольких поисков
+     */
+    public Search(TranspositionTable table) {
+        this.table = table;
+        for (int ply = 0; ply < MAX_PLY; ply++) {
+            pickers[ply] = new MovePicker(ordering);
+            undos[ply] = new MoveUndo();
+        }
+    }
+
+    /**
+     * Получает таблицу перестановок поиска
+     * @return таблица перестановок
+     */
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    /**
+     * Получает оценочную функцию поиска
+     * @return оценочная функция
+     */
+    public Evaluator getEvaluator() {
+        return evaluator;
+    }
+
+    /**
+     * Ищет лучший ход для стороны, чей сейчас ход
+     * @param position позиция, не изменяется
+     * @param limits ограничения поиска
+     * @return результат последней завершенной итерации
+     */
+    public SearchResult search(Pieces position, SearchLimits limits) {
+        stopped = false;
+        table.newSearch();
+        return run(new Pieces(position), limits, 0);
+    }
+
+    /**
+     * Готовит поиск к запуску в отдельном потоке. Вызывается до запуска потока,
+     * чтобы вызов stop() из другого потока не мог потеряться
+     */
+    void prepare() {
+        stopped = false;
+    }
+
+    /**
+     * Выполняет итеративное углубление без сброса флага остановки и поколения таблицы
+     * @param position собственная копия позиции поиска, изменяется во время поиска
+     *                 и не должна использоваться другими потоками
+     * @param limits ограничения поиска
+     * @param thread номер потока, 0 для основного; вспомогательные пропускают часть глубин
+     * @return результат последней завершенной итерации
+     */
+    SearchResult run(Pieces position, SearchLimits limits, int thread) {
+        this.pieces = position;
+        this.limits = limits;
+        this.startTime = System.currentTimeMillis();
+        this.deadline = limits.getTimeMillis() == SearchLimits.UNLIMITED
+                ? Long.MAX_VALUE : startTime + limits.getTimeMillis();
+        this.nodes = 0;
+
+        // Позиции партии до начала поиска нужны для распознавания повторений,
+        // раньше последнего необратимого хода позиция повториться не может
+        gameKeys = new RepetitionTracker();
+        int firstReversible = Math.max(0, pieces.getPlyCount() - pieces.getHalfmoveClock());
+        for (int ply = firstReversible; ply < pieces.getPlyCount(); ply++)
+            gameKeys.add(pieces.getHistoryKey(ply));
+
+        ordering.clear();
+        evaluator.getPawnTable().resetStatistics();
+        SearchResult result = new SearchResult(NO_MOVE, 0, 0, 0, 0, new int[0]);
+
+        int maxDepth = limits.getMaxDepth();
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            if (depth < maxDepth && skipsDepth(thread, depth))
+                continue;
+            int score = negamax(depth, 0, -infinity, infinity);
+            // Результат прерванной первой итерации основного потока лучше, чем никакого
+            if (stopped && (depth > 1 || thread > 0))
+                break;
+
+            int[] line = Arrays.copyOf(pv[0], pvLength[0]);
+            int bestMove = line.length > 0 ? line[0] : NO_MOVE;
+            result = new SearchResult(bestMove, score, depth, nodes, System.currentTimeMillis() - startTime, line);
+
+            if (stopped || bestMove == NO_MOVE || result.isMateScore() || depth == maxDepth)
+                break;
+            // Следующая итерация обычно длится дольше всех предыдущих вместе взятых
+            if (deadline != Long.MAX_VALUE && System.currentTimeMillis() - startTime > limits.getTimeMillis() / 2)
+                break;
+        }
+        return result;
+    }
+
+    /**
+     * Проверяет, пропускает ли поток глубину итеративного углубления. Каждый вспомогательный
+     * поток просматривает глубины сериями своей длины и со своим сдвигом, зависящим также
+     * от номера полухода партии, поэтому потоки одновременно ищут на разных глубинах
+     * и расходятся по дереву. Основной поток не пропускает глубин
+     * @param thread номер потока, 0 для основного
+     * @param depth глубина итерации
+     * @return true если глубину нужно пропустить
+     */
+    private boolean skipsDepth(int thread, int depth) {
+        if (thread == 0)
+            return false;
+        int index = (thread - 1) % skipSize.length;
+        return ((depth + pieces.getPlyCount() + skipPhase[index]) / skipSize[index]) % 2 != 0;
+    }
+
+    /**
+     * Останавливает идущий поиск, например из другого потока
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Получает число узлов, просмотренных последним поиском
+     * @return число узлов
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Проверяет, не исчерпаны ли время и число узлов
+     */
+    private void checkLimits() {
+        if (nodes >= limits.getMaxNodes() || System.currentTimeMillis() >= deadline)
+            stopped = true;
+    }
+
+    /**
+     * Проверяет ничью в узле поиска: недостаток материала или повторение позиции.
+     * Повторение ищется только среди позиций после последнего необратимого хода,
+     * а позиции партии до корня просматриваются, только если такой ход не сделан на пути поиска
+     * @param ply расстояние от корня
+     * @return true если позиция ничейная или уже встречалась
+     */
+    private boolean isDraw(int ply) {
+        if (pieces.isInsufficientMaterial())
+            return true;
+
+        int reversible = pieces.getHalfmoveClock();
+        long key = pieces.getKey();
+        // Позиция может повториться не раньше чем через четыре полухода
+        for (int i = ply - 4; i >= Math.max(0, ply - reversible); i -= 2) {
+            if (pathKeys[i] == key)
+                return true;
+        }
+        return reversible > ply && gameKeys.count(key) > 0;
+    }
+
+    /**
+     * Альфа-бета поиск в форме negamax
+     * @param depth оставшаяся глубина
+     * @param ply расстояние от корня
+     * @param alpha нижняя граница окна
+     * @param beta верхняя граница окна
+     * @return оценка позиции с точки зрения стороны, чей ход
+     */
+    private int negamax(int depth, int ply, int alpha, int beta) {
+        pvLength[ply] = 0;
+        pathKeys[ply] = pieces.getKey();
+
+        COLOUR side = pieces.getSideToMove();
+        boolean inCheck = pieces.isCheck(side);
+        if (inCheck && ply < MAX_PLY / 2)
+            depth++;
+        if (depth <= 0)
+            return quiescence(ply, alpha, beta);
+
+        if (ply > 0 && isDraw(ply))
+            return 0;
+
+        if (++nodes % checkInterval == 0)
+            checkLimits();
+        if (stopped)
+            return 0;
+
+        if (ply >= MAX_PLY - 1)
+            return evaluator.evaluate(pieces);
+
+        // Вне главного варианта достаточно глубокий результат из таблицы заменяет поиск
+        long key = pieces.getKey();
+        long entry = table.probe(key);
+        int hashMove = NO_MOVE;
+        if (entry != TranspositionTable.EMPTY) {
+            hashMove = TranspositionTable.move(entry);
+            if (ply > 0 && beta - alpha == 1 && TranspositionTable.depth(entry) >= depth) {
+                int stored = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && stored >= beta)
+                        || (bound == TranspositionTable.UPPER && stored <= alpha))
+                    return stored;
+            }
+        }
+
+        MovePicker picker = pickers[ply];
+        picker.init(pieces, hashMove, ply, false);
+
+        int originalAlpha = alpha;
+        int best = -infinity;
+        int bestMove = NO_MOVE;
+        int searched = 0;
+        for (int move = picker.next(); move != NO_MOVE; move = picker.next()) {
+            boolean quiet = PackedMove.isQuiet(move);
+
+            MoveUndo undo = undos[ply];
+            MoveGenerator.make(pieces, move, undo);
+            int score;
+            if (searched++ == 0)
+                score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+            else {
+                score = -negamax(depth - 1, ply + 1, -alpha - 1, -alpha);
+                if (score > alpha && score < beta)
+                    score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+            }
+            pieces.unmake(undo);
+
+            if (stopped)
+                return 0;
+
+            if (score > best) {
+                best = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePrincipalVariation(ply, move);
+                    if (alpha >= beta) {
+                        if (quiet)
+                            ordering.addCutoff(side, move, ply, depth);
+                        break;
+                    }
+                }
+            }
+        }
+        if (searched == 0)
+            return inCheck ? -MATE + ply : 0;
+
+        int bound = best >= beta ? TranspositionTable.LOWER
+                : best > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        table.store(key, bestMove, toTable(best, ply), depth, bound);
+        return best;
+    }
+
+    /**
+     * Поиск только по взятиям и превращениям, чтобы оценка не бралась посреди размена.
+     * Сторона может не бить и остаться при статической оценке; взятия, которые по SEE
+     * теряют материал, не просматриваются. Под шахом просматриваются все ходы
+     * @param ply расстояние от корня
+     * @param alpha нижняя граница окна
+     * @param beta верхняя граница окна
+     * @return оценка позиции с точки зрения стороны, чей ход
+     */
+    private int quiescence(int ply, int alpha, int beta) {
+        pvLength[ply] = 0;
+
+        if (++nodes % checkInterval == 0)
+            checkLimits();
+        if (stopped)
+            return 0;
+
+        if (ply >= MAX_PLY - 1)
+            return evaluator.evaluate(pieces);
+
+        boolean inCheck = pieces.isCheck(pieces.getSideToMove());
+        int best = -infinity;
+        if (!inCheck) {
+            best = evaluator.evaluate(pieces);
+            if (best >= beta)
+                return best;
+            if (best > alpha)
+                alpha = best;
+        }
+
+        // Под шахом нужны все ходы, иначе только взятия, не теряющие материал по SEE
+        MovePicker picker = pickers[ply];
+        picker.init(pieces, NO_MOVE, ply, !inCheck);
+
+        int searched = 0;
+        for (int move = picker.next(); move != NO_MOVE; move = picker.next()) {
+            searched++;
+            MoveUndo undo = undos[ply];
+            MoveGenerator.make(pieces, move, undo);
+            int score = -quiescence(ply + 1, -beta, -alpha);
+            pieces.unmake(undo);
+
+            if (stopped)
+                return 0;
+
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePrincipalVariation(ply, move);
+                    if (alpha >= beta)
+                        break;
+                }
+            }
+        }
+        if (inCheck && searched == 0)
+            return -MATE + ply;
+        return best;
+    }
+
+    /**
+     * Переводит оценку мата из расстояния от корня в расстояние от узла для записи в таблицу
+     * @param score оценка узла
+     * @param ply расстояние от корня
+     * @return оценка для таблицы
+     */
+    private static int toTable(int score, int ply) {
+        if (score >= mateBound)
+            return score + ply;
+        if (score <= -mateBound)
+            return score - ply;
+        return score;
+    }
+
+    /**
+     * Переводит оценку мата из таблицы обратно в расстояние от корня
+     * @param score оценка из таблицы
+     * @param ply расстояние от корня
+     * @return оценка узла
+     */
+    private static int fromTable(int score, int ply) {
+        if (score >= mateBound)
+            return score - ply;
+        if (score <= -mateBound)
+            return score + ply;
+        return score;
+    }
+
+    /**
+     * Записывает главный вариант узла: ход и продолжение из дочернего узла
+     * @param ply расстояние от корня
+     * @param move лучший ход узла
+     */
+    private void updatePrincipalVariation(int ply, int move) {
+        pv[ply][0] = move;
+        System.arraycopy(pv[ply + 1], 0, pv[ply], 1, pvLength[ply + 1]);
+        pvLength[ply] = pvLength[ply + 1] + 1;
+    }
+}
@@ -0,0 +1,85 @@
+package org.example.engine;
+
+
+/**
+ * Ограничения поиска: наибольшая глубина, время и число узлов.
+ * Поиск останавливается, как только исчерпано любое из заданных ограничений.
+ */
+public class SearchLimits {
+
+    /** Значение, означающее отсутствие ограничения */
+    public static final long UNLIMITED = Long.MAX_VALUE;
+
+    private final int maxDepth;
+    private final long timeMillis;
+    private final long maxNodes;
+
+    /**
+     * Конструктор ограничений
+     * @param maxDepth наибольшая глубина итеративного углубления в полуходах
+     * @param timeMillis время на ход в миллисекундах или UNLIMITED
+     * @param maxNodes наибольшее число узлов или UNLIMITED
+     * @throws IllegalArgumentException если ограничения не положительны
+     */
+    public SearchLimits(int maxDepth, long timeMillis, long maxNodes) {
+        if (maxDepth < 1 || maxDepth > Search.MAX_PLY)
+            throw new IllegalArgumentException("Глубина поиска должна быть от 1 до " + Search.MAX_PLY + ".");
+        if (timeMillis <= 0 || maxNodes <= 0)
+            throw new IllegalArgumentException("Время и число узлов должны быть положительными.");
+
+        this.maxDepth = maxDepth;
+        this.timeMillis = timeMillis;
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * Создает ограничение только по времени
+     * @param timeMillis время на ход в миллисекундах
+     * @return ограничения поиска
+     */
+    public static SearchLimits time(long timeMillis) {
+        return new SearchLimits(Search.MAX_PLY, timeMillis, UNLIMITED);
+    }
+
+    /**
+     * Создает ограничение только по числу узлов
+     * @param maxNodes наибольшее число узлов
+     * @return ограничения поиска
+     */
+    public static SearchLimits nodes(long maxNodes) {
+        return new SearchLimits(Search.MAX_PLY, UNLIMITED, maxNodes);
+    }
+
+    /**
+     * Создает ограничение только по глубине
+     * @param maxDepth глубина в полуходах
+     * @return ограничения поиска
+     */
+    public static SearchLimits depth(int maxDepth) {
+        return new SearchLimits(maxDepth, UNLIMITED, UNLIMITED);
+    }
+
+    /**
+     * Получает наибольшую глубину поиска
+     * @return глубина в полуходах
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Получает время на ход
+     * @return время в миллисекундах или UNLIMITED
+     */
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    /**
+     * Получает наибольшее число узлов
+     * @return число узлов или UNLIMITED
+     */
+    public long getMaxNodes() {
+        return maxNodes;
+    }
+}
@@ -0,0 +1,109 @@
+package org.example.engine;
+
+
+import org.example.PackedMove;
+
+/**
+ * Результат поиска: лучший ход, его оценка и главный вариант.
+ * Ходы хранятся в формате PackedMove.
+ */
+public class SearchResult {
+
+    private final int bestMove;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final long timeMillis;
+    private final int[] principalVariation;
+
+    /**
+     * Конструктор результата
+     * @param bestMove лучший ход или Search.NO_MOVE, если ходов нет
+     * @param score оценка позиции в сантипешках с точки зрения стороны, чей ход
+     * @param depth глубина последней завершенной итерации
+     * @param nodes число просмотренных узлов
+     * @param timeMillis затраченное время в миллисекундах
+     * @param principalVariation главный вариант, начиная с лучшего хода
+     */
+    public SearchResult(int bestMove, int score, int depth, long nodes, long timeMillis, int[] principalVariation) {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.timeMillis = timeMillis;
+        this.principalVariation = principalVariation.clone();
+    }
+
+    /**
+     * Получает лучший ход
+     * @return упакованный ход или Search.NO_MOVE
+     */
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * Получает оценку позиции
+     * @return оценка в сантипешках, для мата близкая к Search.MATE
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Получает глубину последней завершенной итерации
+     * @return глубина в полуходах
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Получает число просмотренных узлов
+     * @return число узлов
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Получает затраченное время
+     * @return время в миллисекундах
+     */
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    /**
+     * Получает главный вариант
+     * @return копия массива упакованных ходов
+     */
+    public int[] getPrincipalVariation() {
+        return principalVariation.clone();
+    }
+
+    /**
+     * Проверяет, является ли оценка матовой
+     * @return true если найден форсированный мат одной из сторон
+     */
+    public boolean isMateScore() {
+        return Math.abs(score) >= Search.MATE - Search.MAX_PLY;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder str = new StringBuilder();
+        str.append("глубина ").append(depth);
+        if (isMateScore()) {
+            int plies = Search.MATE - Math.abs(score);
+            str.append(" мат ").append(score > 0 ? (plies + 1) / 2 : -(plies + 1) / 2);
+        }
+        else
+            str.append(" оценка ").append(score);
+        str.append(" узлов ").append(nodes).append(" время ").append(timeMillis).append(" мс");
+        str.append(" вариант");
+        for (int move : principalVariation)
+            str.append(" ").append(PackedMove.toString(move));
+        return str.toString();
+    }
+}
@@ -0,0 +1,98 @@
+package org.example.engine;
+
+
+import org.example.Bitboards;
+import org.example.COLOUR;
+import org.example.ID;
+import org.example.PackedMove;
+import org.example.PieceSquareTables;
+import org.example.Pieces;
+
+/**
+ * Статическая оценка размена (SEE): чем закончится серия взятий на одном поле,
+ * если обе стороны бьют самой дешевой фигурой и могут остановиться в любой момент.
+ * Нападающие и защитники берутся из Pieces.attackersTo, после каждого взятия
+ * лучи строятся заново, поэтому учитываются фигуры, стоявшие за взявшей (рентген).
+ * Связки не учитываются.
+ */
+public class StaticExchange {
+
+    /** Стоимость короля в размене: взять им можно, только если поле больше никто не бьет */
+    private static final int kingValue = 20000;
+
+    /** Наибольшее число взятий в одном размене и наименьшая длина рабочего массива */
+    public static final int MAX_SWAPS = 32;
+
+    /** Типы фигур от самой дешевой к самой дорогой */
+    private static final ID[] cheapestFirst = {ID.PAWN, ID.KNIGHT, ID.BISHOP, ID.ROOK, ID.QUEEN, ID.KING};
+
+    private StaticExchange() {
+    }
+
+    /**
+     * Оценивает размен, который начинает ход
+     * @param pieces позиция до хода
+     * @param move упакованный ход
+     * @param gain рабочий массив длиной не меньше MAX_SWAPS, у каждого MovePicker свой
+     * @return выигрыш стороны, делающей ход, в сантипешках; отрицательный для проигрышного взятия
+     */
+    public static int evaluate(Pieces pieces, int move, int[] gain) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        ID promotion = PackedMove.promotion(move);
+        ID captured = MoveGenerator.capturedType(pieces, move);
+        COLOUR side = pieces.getPiece(from).getColour();
+
+        long occupancy = pieces.getOccupied() & ~Bitboards.bit(from);
+        gain[0] = captured == null ? 0 : value(captured);
+        int onSquare = value(pieces.getPiece(from).getName());
+        if (promotion != null) {
+            gain[0] += value(promotion) - value(ID.PAWN);
+            onSquare = value(promotion);
+        }
+        // Пешка, взятая на проходе, стоит не на поле назначения
+        if (captured == ID.PAWN && pieces.getPiece(to) == null)
+            occupancy &= ~Bitboards.bit(to + (side == COLOUR.W ? -Bitboards.FILES : Bitboards.FILES));
+
+        // gain[depth] - выигрыш стороны, бьющей на шаге depth, если после нее никто не бьет.
+        // Последнее значение предполагает ответное взятие, которого может не быть, и отбрасывается
+        int depth = 0;
+        long attackers = pieces.attackersTo(to, occupancy);
+        do {
+            depth++;
+            gain[depth] = onSquare - gain[depth - 1];
+            // Ни продолжение, ни остановка уже не изменят знак результата
+            if (Math.max(-gain[depth - 1], gain[depth]) < 0)
+                break;
+
+            side = COLOUR.not(side);
+            long own = attackers & pieces.getColourBitboard(side);
+            if (own == 0)
+                break;
+
+            ID attacker = null;
+            for (int i = 0; i < cheapestFirst.length && attacker == null; i++) {
+                long candidates = own & pieces.getBitboard(side, cheapestFirst[i]);
+                if (candidates != 0) {
+                    attacker = cheapestFirst[i];
+                    occupancy &= ~Long.lowestOneBit(candidates);
+                }
+            }
+            onSquare = value(attacker);
+            attackers = pieces.attackersTo(to, occupancy);
+        } while (depth < MAX_SWAPS - 1);
+
+        while (--depth > 0)
+            gain[depth - 1] = -Math.max(-gain[depth - 1], gain[depth]);
+        return gain[0];
+    }
+
+    /**
+     * Получает стоимость фигуры в размене
+     * @param name тип фигуры
+     * @return стоимость в сантипешках
+     */
+    private static int value(ID name) {
+        return name == ID.KING ? kingValue : PieceSquareTables.value(name);
+    }
+}
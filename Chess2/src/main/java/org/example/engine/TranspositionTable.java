@@ -0,0 +1,191 @@
+package org.example.engine;
+
+
+import java.util.Arrays;
+
+/**
+ * Таблица перестановок: результаты поиска по ключам Zobrist.
+ * Записи лежат в одном массиве long без объектов на запись. Таблица разбита на корзины
+ * из двух записей: первая замещается только более глубоким (или устаревшим) результатом,
+ * вторая замещается всегда.
+ *
+ * Каждая запись занимает два числа: данные и ключ, сложенный с данными по XOR.
+ * Потоки читают и пишут без блокировок: если запись была разорвана одновременной
+ * записью из другого потока, ключ не совпадет и запись будет считаться пустой.
+ *
+ * Данные записи: биты 0-19 ход, 20-35 оценка со знаком, 36-43 глубина,
+ * 44-45 тип границы, 46-53 поколение поиска.
+ */
+public class TranspositionTable {
+
+    /** Запись не найдена */
+    public static final long EMPTY = 0L;
+    /** Точная оценка */
+    public static final int EXACT = 1;
+    /** Оценка не меньше сохраненной (было отсечение по beta) */
+    public static final int LOWER = 2;
+    /** Оценка не больше сохраненной (ни один ход не улучшил alpha) */
+    public static final int UPPER = 3;
+
+    private static final int longsPerEntry = 2;
+    private static final int entriesPerBucket = 2;
+    private static final int longsPerBucket = longsPerEntry * entriesPerBucket;
+    private static final int bytesPerBucket = longsPerBucket * Long.BYTES;
+
+    private static final long maxBuckets = 1L << 28;
+
+    private final long[] table;
+    private final long bucketMask;
+    private int generation;
+
+    /**
+     * Конструктор таблицы
+     * @param megabytes размер таблицы в мегабайтах, округляется вниз до степени двойки
+     * @throws IllegalArgumentException если размер не положителен
+     */
+    public TranspositionTable(int megabytes) {
+        if (megabytes <= 0)
+            throw new IllegalArgumentException("Размер таблицы должен быть положительным.");
+
+        // Массив Java ограничен 2^31 элементами
+        long buckets = Math.min(maxBuckets, Long.highestOneBit((long) megabytes * 1024 * 1024 / bytesPerBucket));
+        table = new long[(int) (buckets * longsPerBucket)];
+        bucketMask = buckets - 1;
+    }
+
+    /**
+     * Очищает таблицу, например перед новой партией
+     */
+    public void clear() {
+        Arrays.fill(table, 0L);
+        generation = 0;
+    }
+
+    /**
+     * Начинает новый поиск: записи прошлых поисков замещаются в первую очередь
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    /**
+     * Ищет запись позиции
+     * @param key ключ Zobrist позиции
+     * @return данные записи или EMPTY
+     */
+    public long probe(long key) {
+        int index = bucketIndex(key);
+        for (int i = 0; i < entriesPerBucket; i++) {
+            int slot = index + i * longsPerEntry;
+            long data = table[slot];
+            if (data != EMPTY && (table[slot + 1] ^ data) == key)
+                return data;
+        }
+        return EMPTY;
+    }
+
+    /**
+     * Сохраняет результат поиска позиции
+     * @param key ключ Zobrist позиции
+     * @param move лучший ход или Search.NO_MOVE
+     * @param score оценка
+     * @param depth оставшаяся глубина поиска
+     * @param bound тип границы: EXACT, LOWER или UPPER
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+        int index = bucketIndex(key);
+        long oldData = table[index];
+        boolean sameKey = oldData != EMPTY && (table[index + 1] ^ oldData) == key;
+
+        // Первая запись корзины хранит самый глубокий результат текущего поиска
+        int slot = index + longsPerEntry;
+        if (oldData == EMPTY || sameKey || depth >= depth(oldData) || generation(oldData) != generation)
+            slot = index;
+
+        // Ход прежней записи той же позиции полезнее пустого хода
+        if (move == Search.NO_MOVE) {
+            long previous = table[slot];
+            if (previous != EMPTY && (table[slot + 1] ^ previous) == key)
+                move = move(previous);
+        }
+
+        long data = (move & 0xFFFFFL)
+                | ((score & 0xFFFFL) << 20)
+                | ((long) (Math.max(depth, 0) & 0xFF) << 36)
+                | ((long) bound << 44)
+                | ((long) generation << 46);
+        table[slot] = data;
+        table[slot + 1] = key ^ data;
+    }
+
+    /**
+     * Оценивает заполненность таблицы записями текущего поиска
+     * @return число занятых записей на тысячу по первой тысяче корзин
+     */
+    public int hashfull() {
+        int buckets = (int) Math.min(1000, bucketMask + 1);
+        int used = 0;
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            for (int i = 0; i < entriesPerBucket; i++) {
+                long data = table[bucket * longsPerBucket + i * longsPerEntry];
+                if (data != EMPTY && generation(data) == generation)
+                    used++;
+            }
+        }
+        return used * 1000 / (buckets * entriesPerBucket);
+    }
+
+    /**
+     * Получает индекс первой записи корзины для ключа
+     * @param key ключ позиции
+     * @return индекс в массиве
+     */
+    private int bucketIndex(long key) {
+        return (int) ((key ^ (key >>> 32)) & bucketMask) * longsPerBucket;
+    }
+
+    /**
+     * Получает ход из данных записи
+     * @param data данные записи
+     * @return упакованный ход или Search.NO_MOVE
+     */
+    public static int move(long data) {
+        return (int) (data & 0xFFFFF);
+    }
+
+    /**
+     * Получает оценку из данных записи
+     * @param data данные записи
+     * @return оценка
+     */
+    public static int score(long data) {
+        return (short) (data >>> 20);
+    }
+
+    /**
+     * Получает глубину из данных записи
+     * @param data данные записи
+     * @return оставшаяся глубина поиска
+     */
+    public static int depth(long data) {
+        return (int) (data >>> 36) & 0xFF;
+    }
+
+    /**
+     * Получает тип границы из данных записи
+     * @param data данные записи
+     * @return EXACT, LOWER или UPPER
+     */
+    public static int bound(long data) {
+        return (int) (data >>> 44) & 0x3;
+    }
+
+    /**
+     * Получает поколение поиска из данных записи
+     * @param data данные записи
+     * @return номер поколения
+     */
+    private static int generation(long data) {
+        return (int) (data >>> 46) & 0xFF;
+    }
+}
@@ -0,0 +1,143 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверка переноса вычисленных ходов фигур после makeMove:
+ * перенесенные ходы должны совпадать с вычисленными заново
+ */
+class CarriedMovesTest {
+
+    /** Позиции со связками, вскрытыми шахами, рокировками и взятиями на проходе */
+    private static final String[] positions = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+            "4k3/4r3/8/8/b7/8/3BN3/4K3 w - - 0 1",
+            "8/8/8/KPp4r/8/8/8/7k w - c6 0 1",
+            "r3k2r/8/8/4N3/8/8/8/R3K1R1 w Qkq - 0 1"
+    };
+
+    @Test
+    void carriedMovesMatchFreshMoves() {
+        Random random = new Random(5);
+        long carried = 0;
+        for (String fen : positions) {
+            for (int game = 0; game < 12; game++)
+                carried += playRandomGame(new Pieces(fen), random, 80);
+        }
+        assertTrue(carried > 0, "Ходы ни одной фигуры не были перенесены");
+    }
+
+    @Test
+    void discoveredCheckInvalidatesDefenderMoves() {
+        Pieces pieces = new Pieces("4k3/8/8/8/8/8/4N3/4R1K1 w - - 0 1");
+        fillCaches(pieces);
+        pieces.makeMove(Coordinate.of('c', 3), pieces.getPiece(Coordinate.of('e', 2)));
+        compareWithFresh(pieces, "e2c3");
+        assertEquals(new HashSet<>(List.of(Coordinate.of('d', 8), Coordinate.of('f', 8), Coordinate.of('d', 7),
+                Coordinate.of('f', 7))), pieces.getPiece(Coordinate.of('e', 8)).getPotentialMoves(pieces));
+    }
+
+    @Test
+    void pinAppearsAfterBlockerLeaves() {
+        Pieces pieces = new Pieces("4k3/4r3/8/8/8/3N4/4B3/4K3 b - - 0 1");
+        fillCaches(pieces);
+        pieces.makeMove(Coordinate.of('e', 5), pieces.getPiece(Coordinate.of('e', 7)));
+        fillCaches(pieces);
+        pieces.makeMove(Coordinate.of('b', 4), pieces.getPiece(Coordinate.of('d', 3)));
+        compareWithFresh(pieces, "d3b4");
+        fillCaches(pieces);
+        pieces.makeMove(Coordinate.of('e', 6), pieces.getPiece(Coordinate.of('e', 5)));
+        compareWithFresh(pieces, "e5e6");
+    }
+
+    /**
+     * Играет случайную партию через makeMove и после каждого хода сравнивает ходы всех фигур
+     * @param pieces начальная позиция
+     * @param random генератор случайных ходов
+     * @param plies наибольшее число полуходов
+     * @return число фигур, чьи ходы были перенесены
+     */
+    private static long playRandomGame(Pieces pieces, Random random, int plies) {
+        long carried = 0;
+        for (int ply = 0; ply < plies; ply++) {
+            fillCaches(pieces);
+            List<Piece> own = sorted(pieces, pieces.getSideToMove());
+            List<Object[]> moves = new ArrayList<>();
+            for (Piece piece : own) {
+                for (Coordinate target : piece.getPotentialMoves(pieces))
+                    moves.add(new Object[]{piece, target});
+            }
+            if (moves.isEmpty())
+                break;
+            moves.sort(Comparator.comparing(move -> move[0].toString() + move[1]));
+
+            Object[] move = moves.get(random.nextInt(moves.size()));
+            Piece piece = (Piece) move[0];
+            Coordinate target = (Coordinate) move[1];
+            String description = piece.getCoords() + "" + target;
+            pieces.makeMove(target, piece);
+            carried += compareWithFresh(pieces, description);
+            if (pieces.isDraw())
+                break;
+        }
+        return carried;
+    }
+
+    /**
+     * Вычисляет ходы всех фигур, чтобы следующий ход мог их перенести
+     * @param pieces позиция
+     */
+    private static void fillCaches(Pieces pieces) {
+        for (COLOUR colour : COLOUR.values()) {
+            for (Piece piece : sorted(pieces, colour))
+                piece.getPotentialMoves(pieces);
+        }
+    }
+
+    /**
+     * Сравнивает хранящиеся ходы каждой фигуры с вычисленными заново
+     * @param pieces позиция после хода
+     * @param move описание сделанного хода для сообщения об ошибке
+     * @return число фигур, чьи ходы были перенесены
+     */
+    private static long compareWithFresh(Pieces pieces, String move) {
+        long carried = 0;
+        for (COLOUR colour : COLOUR.values()) {
+            for (Piece piece : sorted(pieces, colour)) {
+                if (piece.hasMovesAt(pieces, pieces.getVersion()))
+                    carried++;
+                HashSet<Coordinate> kept = new HashSet<>(piece.getPotentialMoves(pieces));
+                piece.clearMoves();
+                HashSet<Coordinate> fresh = new HashSet<>(piece.getPotentialMoves(pieces));
+                assertEquals(fresh, kept, "Ходы " + piece + " на " + piece.getCoords()
+                        + " после " + move + " в позиции " + pieces.toFen());
+            }
+        }
+        return carried;
+    }
+
+    /**
+     * Получает фигуры цвета в постоянном порядке, чтобы партии воспроизводились
+     * @param pieces позиция
+     * @param colour цвет
+     * @return фигуры по возрастанию поля
+     */
+    private static List<Piece> sorted(Pieces pieces, COLOUR colour) {
+        List<Piece> result = new ArrayList<>(pieces.getColourPieces(colour).values());
+        result.sort(Comparator.comparingInt(piece -> Bitboards.square(piece.getCoords())));
+        return result;
+    }
+}
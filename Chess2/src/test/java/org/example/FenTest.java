@@ -0,0 +1,111 @@
+package org.example;
+
+import org.example.engine.MoveGenerator;
+import org.example.engine.MoveList;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Проверка чтения и записи позиций в нотации FEN
+ */
+class FenTest {
+
+    private static final String start = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    @Test
+    void startPositionMatchesDefaultBoard() {
+        assertEquals(start, new Pieces().toFen());
+        Pieces parsed = new Pieces(start);
+        assertEquals(start, parsed.toFen());
+        assertEquals(new Pieces().getKey(), parsed.getKey());
+    }
+
+    @Test
+    void roundTrip() {
+        String[] fens = {
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+                "4k3/8/8/8/8/8/8/4K2R b K - 12 40"
+        };
+        for (String fen : fens)
+            assertEquals(fen, new Pieces(fen).toFen());
+    }
+
+    @Test
+    void enPassantSquareOnlyWhenCapturePossible() {
+        Pieces pieces = new Pieces();
+        play(pieces, "e2e4");
+        assertEquals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1", pieces.toFen());
+        assertEquals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1",
+                new Pieces("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1").toFen());
+    }
+
+    @Test
+    void positionsOfRandomGamesSurviveRoundTrip() {
+        Random random = new Random(7);
+        MoveList moves = new MoveList();
+        for (int game = 0; game < 20; game++) {
+            Pieces pieces = new Pieces();
+            for (int ply = 0; ply < 120; ply++) {
+                int count = MoveGenerator.generate(pieces, moves);
+                if (count == 0)
+                    break;
+                int move = moves.get(random.nextInt(count));
+                pieces.playMove(move);
+                assertEquals(move, pieces.getHistoryMove(ply), "История партии должна хранить ход с флагами");
+
+                String fen = pieces.toFen();
+                Pieces parsed = new Pieces(fen);
+                assertEquals(fen, parsed.toFen());
+                assertEquals(pieces.getKey(), parsed.getKey(), fen);
+                assertEquals(count(pieces, moves), count(parsed, moves), fen);
+            }
+        }
+    }
+
+    @Test
+    void malformedFenIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new Pieces("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP w KQkq - 0 1"));
+        assertThrows(IllegalArgumentException.class, () -> new Pieces("rnbqkbnr/pppppppp/9/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1"));
+        assertThrows(IllegalArgumentException.class, () -> new Pieces("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR x KQkq - 0 1"));
+        assertThrows(IllegalArgumentException.class, () -> new Pieces("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkx - 0 1"));
+        assertThrows(IllegalArgumentException.class, () -> new Pieces("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq e4 0 1"));
+    }
+
+    /**
+     * Считает допустимые ходы позиции
+     * @param pieces позиция
+     * @param moves список для ходов
+     * @return число ходов
+     */
+    private static int count(Pieces pieces, MoveList moves) {
+        return MoveGenerator.generate(pieces, moves);
+    }
+
+    /**
+     * Делает ходы вида "e2e4"
+     * @param pieces позиция
+     * @param texts ходы
+     */
+    static void play(Pieces pieces, String... texts) {
+        MoveList moves = new MoveList();
+        for (String text : texts) {
+            int count = MoveGenerator.generate(pieces, moves);
+            int found = -1;
+            for (int i = 0; i < count; i++) {
+                if (PackedMove.toString(moves.get(i)).equals(text))
+                    found = moves.get(i);
+            }
+            if (found < 0)
+                throw new IllegalArgumentException("Ход " + text + " недопустим в позиции " + pieces.toFen());
+            pieces.playMove(found);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package org.example;
+
+import org.example.engine.MoveGenerator;
+import org.example.engine.MoveList;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Проверка двоичного архива партий
+ */
+class GameArchiveTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTripWithCastlingPromotionAndFen() throws IOException {
+        Path file = directory.resolve("games.bin");
+        Pieces castling = new Pieces();
+        FenTest.play(castling, "e2e4", "e7e5", "g1f3", "b8c6", "f1c4", "g8f6", "e1g1", "f8c5", "d2d4", "e5d4", "e4e5", "d7d5");
+        FenTest.play(castling, "e5d6");
+        Pieces promotion = new Pieces("4k3/1P6/8/8/8/8/6p1/4K2R w K - 0 1");
+        FenTest.play(promotion, "b7b8N", "g2h1Q", "e1e2");
+
+        Map<String, String> tags = new LinkedHashMap<>();
+        tags.put("Event", "Турнир");
+        tags.put("White", "Белые");
+        try (GameArchive archive = new GameArchive(file)) {
+            assertEquals(0, archive.append(tags, castling));
+            assertEquals(1, archive.append(Map.of(), promotion));
+        }
+
+        try (GameArchive archive = new GameArchive(file)) {
+            assertEquals(2, archive.size());
+            assertEquals(tags, archive.readTags(0));
+            assertEquals(castling.toFen(), archive.readGame(0).toFen());
+            assertEquals(castling.getPlyCount(), archive.readGame(0).getPlyCount());
+            assertEquals("4k3/1P6/8/8/8/8/6p1/4K2R w K - 0 1", archive.readTags(1).get("FEN"));
+            assertEquals(promotion.toFen(), archive.readGame(1).toFen());
+            assertThrows(IndexOutOfBoundsException.class, () -> archive.readGame(2));
+        }
+    }
+
+    @Test
+    void randomAccessToManyGames() throws IOException {
+        Path file = directory.resolve("random.bin");
+        Random random = new Random(3);
+        MoveList moves = new MoveList();
+        List<String> finals = new ArrayList<>();
+        try (GameArchive archive = new GameArchive(file)) {
+            for (int game = 0; game < 200; game++) {
+                Pieces pieces = new Pieces();
+                for (int ply = 0; ply < 80; ply++) {
+                    int count = MoveGenerator.generate(pieces, moves);
+                    if (count == 0)
+                        break;
+                    pieces.playMove(moves.get(random.nextInt(count)));
+                }
+                archive.append(Map.of("Round", Integer.toString(game)), pieces);
+                finals.add(pieces.toFen());
+            }
+        }
+
+        try (GameArchive archive = new GameArchive(file)) {
+            for (int i = 0; i < 200; i++) {
+                int id = random.nextInt(200);
+                assertEquals(finals.get(id), archive.readGame(id).toFen());
+                assertEquals(Integer.toString(id), archive.readTags(id).get("Round"));
+            }
+        }
+    }
+
+    @Test
+    void recoversIndexAndDropsPartialRecord() throws IOException {
+        Path file = directory.resolve("broken.bin");
+        Pieces pieces = new Pieces();
+        FenTest.play(pieces, "d2d4", "d7d5");
+        try (GameArchive archive = new GameArchive(file)) {
+            for (int i = 0; i < 3; i++)
+                archive.append(Map.of(), pieces);
+        }
+        long size = Files.size(file);
+
+        // Последняя запись индекса потеряна, в архиве недописанная запись
+        Path index = file.resolveSibling("broken.bin.idx");
+        try (FileChannel channel = FileChannel.open(index, StandardOpenOption.WRITE)) {
+            channel.truncate(2 * Long.BYTES + 3);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 1, 0, 7, 7}));
+        }
+
+        try (GameArchive archive = new GameArchive(file)) {
+            assertEquals(3, archive.size());
+            assertEquals(size, Files.size(file));
+            assertEquals(pieces.toFen(), archive.readGame(2).toFen());
+            assertEquals(3, archive.append(Map.of(), pieces));
+        }
+    }
+
+    @Test
+    void rejectsForeignFile() throws IOException {
+        Path file = directory.resolve("text.bin");
+        Files.writeString(file, "not an archive at all");
+        assertThrows(IOException.class, () -> new GameArchive(file));
+    }
+}
@@ -0,0 +1,68 @@
+package org.example;
+
+import org.example.engine.MoveGenerator;
+import org.example.engine.MoveList;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Проверка генератора ходов по известному числу листьев дерева ходов
+ */
+class PerftTest {
+
+    private static final String kiwipete = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+    private static final String endgame = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+    private static final String promotions = "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1";
+    private static final String checks = "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8";
+
+    @Test
+    void startPosition() {
+        Perft perft = new Perft(new Pieces());
+        assertEquals(20, perft.count(1));
+        assertEquals(400, perft.count(2));
+        assertEquals(8902, perft.count(3));
+        assertEquals(197281, perft.count(4));
+    }
+
+    @Test
+    void castlingAndEnPassantPositions() {
+        assertEquals(97862, new Perft(new Pieces(kiwipete)).count(3));
+        assertEquals(43238, new Perft(new Pieces(endgame)).count(4));
+        assertEquals(9467, new Perft(new Pieces(promotions)).count(3));
+        assertEquals(62379, new Perft(new Pieces(checks)).count(3));
+    }
+
+    @Test
+    void moveGeneratorMatchesPerft() {
+        assertEquals(197281, count(new Pieces(), 4, new MoveList[4]));
+        assertEquals(97862, count(new Pieces(kiwipete), 3, new MoveList[3]));
+        assertEquals(43238, count(new Pieces(endgame), 4, new MoveList[4]));
+        assertEquals(9467, count(new Pieces(promotions), 3, new MoveList[3]));
+        assertEquals(62379, count(new Pieces(checks), 3, new MoveList[3]));
+    }
+
+    /**
+     * Считает листья через MoveGenerator с make/unmake
+     * @param pieces позиция
+     * @param depth глубина
+     * @param lists списки ходов по глубинам
+     * @return число листьев
+     */
+    private static long count(Pieces pieces, int depth, MoveList[] lists) {
+        if (lists[depth - 1] == null)
+            lists[depth - 1] = new MoveList();
+        MoveList moves = lists[depth - 1];
+        int size = MoveGenerator.generate(pieces, moves);
+        if (depth == 1)
+            return size;
+
+        long nodes = 0;
+        for (int i = 0; i < size; i++) {
+            MoveUndo undo = MoveGenerator.make(pieces, moves.get(i));
+            nodes += count(pieces, depth - 1, lists);
+            pieces.unmake(undo);
+        }
+        return nodes;
+    }
+}
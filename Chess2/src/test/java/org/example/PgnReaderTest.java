@@ -0,0 +1,104 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверка потокового чтения партий PGN
+ */
+class PgnReaderTest {
+
+    private static final String games = "[Event \"Первая\"]\n"
+            + "[White \"A\"]\n"
+            + "[Result \"1-0\"]\n"
+            + "\n"
+            + "1. e4 {комментарий} e5 (1... c5 2. Nf3 (2. c3) d6) 2. Nf3 $1 Nc6 3.Bb5 a6 ; до конца строки\n"
+            + "4. Ba4 Nf6 5. O-O 1-0\n"
+            + "\n"
+            + "[Event \"Вторая\"]\n"
+            + "[FEN \"4k3/1P6/8/8/8/8/8/4K3 w - - 0 1\"]\n"
+            + "\n"
+            + "1. b8=Q+ Kd7 *\n";
+
+    private static final String strayBrackets = "[Event \"x\"]\n"
+            + "\n"
+            + "1. e4 ) e5 } 2. Nf3 ] 1-0\n"
+            + "\n"
+            + "[Event \"y\"]\n"
+            + "\n"
+            + "1. d4 *\n";
+
+    @Test
+    void readsTagsMovesAndResults() throws IOException {
+        try (PgnReader reader = new PgnReader(new StringReader(games))) {
+            assertTrue(reader.nextGame());
+            assertEquals("Первая", reader.getTag("Event"));
+            Pieces first = reader.replayGame();
+            assertEquals(9, first.getPlyCount());
+            assertEquals("1-0", reader.getResult());
+            assertEquals("r1bqkb1r/1ppp1ppp/p1n2n2/4p3/B3P3/5N2/PPPP1PPP/RNBQ1RK1 b kq - 3 5", first.toFen());
+
+            assertTrue(reader.nextGame());
+            assertEquals(2, reader.getGameNumber());
+            Pieces second = reader.replayGame();
+            assertEquals("1Q6/3k4/8/8/8/8/8/4K3 w - - 1 2", second.toFen());
+            assertEquals("*", reader.getResult());
+
+            assertFalse(reader.nextGame());
+        }
+    }
+
+    @Test
+    void readsUtf8TagsFromBytes() throws IOException {
+        PgnReader reader = new PgnReader(ByteBuffer.wrap(games.getBytes(StandardCharsets.UTF_8)));
+        assertTrue(reader.nextGame());
+        assertEquals("Первая", reader.getTag("Event"));
+        assertEquals("e4", reader.nextSan().toString());
+        assertTrue(reader.nextGame());
+        assertEquals("Вторая", reader.getTag("Event"));
+        assertEquals(2, reader.replayGame().getPlyCount());
+        assertFalse(reader.nextGame());
+    }
+
+    @Test
+    void skipsUnreadMovesOfCurrentGame() throws IOException {
+        PgnReader reader = new PgnReader(new StringReader(games));
+        assertTrue(reader.nextGame());
+        assertNull(reader.getResult());
+        assertTrue(reader.nextGame());
+        assertEquals("Вторая", reader.getTag("Event"));
+    }
+
+    @Test
+    @Timeout(5)
+    void strayClosingBracketIsReportedAndSkipped() throws IOException {
+        PgnReader reader = new PgnReader(new StringReader(strayBrackets));
+        assertTrue(reader.nextGame());
+        assertThrows(IllegalArgumentException.class, reader::replayGame);
+        assertTrue(reader.nextGame());
+        assertEquals("y", reader.getTag("Event"));
+        assertEquals(1, reader.replayGame().getPlyCount());
+        assertFalse(reader.nextGame());
+    }
+
+    @Test
+    @Timeout(5)
+    void strayClosingBracketIsSkippedWithUnreadMoves() throws IOException {
+        PgnReader reader = new PgnReader(new StringReader(strayBrackets));
+        assertTrue(reader.nextGame());
+        assertTrue(reader.nextGame());
+        assertEquals("y", reader.getTag("Event"));
+        assertFalse(reader.nextGame());
+    }
+}
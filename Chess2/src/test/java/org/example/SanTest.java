@@ -0,0 +1,102 @@
+package org.example;
+
+import org.example.engine.MoveGenerator;
+import org.example.engine.MoveList;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Проверка записи и разбора ходов в SAN
+ */
+class SanTest {
+
+    private final MoveList moves = new MoveList();
+
+    @Test
+    void writesCastlingPromotionAndDisambiguation() {
+        Pieces pieces = new Pieces("r3k2r/1P6/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        assertEquals("O-O", san(pieces, "e1g1"));
+        assertEquals("O-O-O", san(pieces, "e1c1"));
+        assertEquals("bxa8=Q+", san(pieces, "b7a8Q"));
+        assertEquals("b8=N", san(pieces, "b7b8N"));
+
+        Pieces knights = new Pieces("4k3/8/8/8/8/5N2/8/1N2K3 w - - 0 1");
+        assertEquals("Nbd2", san(knights, "b1d2"));
+        Pieces rooks = new Pieces("4k3/R7/8/8/8/8/8/R3K3 w - - 0 1");
+        assertEquals("R1a4", san(rooks, "a1a4"));
+    }
+
+    @Test
+    void writesCheckAndMate() {
+        Pieces pieces = new Pieces();
+        FenTest.play(pieces, "f2f3", "e7e5", "g2g4");
+        assertEquals("Qh4#", san(pieces, "d8h4"));
+    }
+
+    @Test
+    void parsesVariantNotations() {
+        Pieces pieces = new Pieces("r3k2r/1P6/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        assertEquals("e1g1", parse(pieces, "0-0"));
+        assertEquals("e1c1", parse(pieces, "O-O-O+"));
+        assertEquals("b7a8Q", parse(pieces, "bxa8=Q"));
+        assertEquals("b7b8R", parse(pieces, "b8R"));
+    }
+
+    @Test
+    void rejectsIllegalAndAmbiguousMoves() {
+        Pieces pieces = new Pieces();
+        assertThrows(IllegalArgumentException.class, () -> ChessIO.parseSan(pieces, "e5", moves));
+        assertThrows(IllegalArgumentException.class, () -> ChessIO.parseSan(pieces, "Zz9", moves));
+        assertThrows(IllegalArgumentException.class, () -> ChessIO.parseSan(pieces, "", moves));
+        Pieces knights = new Pieces("4k3/8/8/8/8/5N2/8/1N2K3 w - - 0 1");
+        assertThrows(IllegalArgumentException.class, () -> ChessIO.parseSan(knights, "Nd2", moves));
+    }
+
+    @Test
+    void randomGamesRoundTrip() {
+        Random random = new Random(11);
+        MoveList legal = new MoveList();
+        for (int game = 0; game < 30; game++) {
+            Pieces pieces = new Pieces();
+            for (int ply = 0; ply < 150; ply++) {
+                int count = MoveGenerator.generate(pieces, legal);
+                if (count == 0)
+                    break;
+                int move = legal.get(random.nextInt(count));
+                String text = ChessIO.moveString(pieces, move, moves);
+                assertEquals(move, ChessIO.parseSan(pieces, text, moves), text);
+                pieces.playMove(move);
+            }
+        }
+    }
+
+    /**
+     * Записывает ход вида "e2e4" в SAN
+     * @param pieces позиция
+     * @param text ход
+     * @return запись SAN
+     */
+    private String san(Pieces pieces, String text) {
+        int count = MoveGenerator.generate(pieces, moves);
+        for (int i = 0; i < count; i++) {
+            int move = moves.get(i);
+            if (PackedMove.toString(move).equals(text))
+                return ChessIO.moveString(pieces, move, moves);
+        }
+        throw new IllegalArgumentException("Ход " + text + " недопустим в позиции " + pieces.toFen());
+    }
+
+    /**
+     * Разбирает запись SAN в ход вида "e2e4"
+     * @param pieces позиция
+     * @param san запись SAN
+     * @return ход
+     */
+    private String parse(Pieces pieces, String san) {
+        return PackedMove.toString(ChessIO.parseSan(pieces, san, moves));
+    }
+}
@@ -0,0 +1,152 @@
+package org.example.engine;
+
+import org.example.Bitboards;
+import org.example.Coordinate;
+import org.example.ID;
+import org.example.MoveUndo;
+import org.example.PackedMove;
+import org.example.Piece;
+import org.example.Pieces;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Проверка генерации ходов по битбордам: против вычисленных ходов фигур,
+ * взятий и допустимости хода против полной генерации, и отсутствия выделения памяти
+ */
+class MoveGeneratorTest {
+
+    /** Позиции со связками, шахами, рокировками, взятиями на проходе и превращениями */
+    private static final String[] positions = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+            "8/8/8/KPp4r/8/8/8/7k w - c6 0 1"
+    };
+
+    @Test
+    void capturesMatchFullGeneration() {
+        for (String fen : positions)
+            walk(new Pieces(fen), 3, null);
+    }
+
+    @Test
+    void generationDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        MoveList[] lists = new MoveList[4];
+        MoveUndo[] undos = new MoveUndo[4];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = new MoveList();
+            undos[i] = new MoveUndo();
+        }
+        long[] allocated = new long[1];
+        // Первый проход прогревает код, второй замеряет только вызовы генерации
+        for (int pass = 0; pass < 2; pass++) {
+            allocated[0] = 0;
+            for (String fen : positions)
+                allocations(new Pieces(fen), 3, lists, undos, threads, allocated);
+        }
+        assertEquals(0L, allocated[0], "Генерация ходов выделила память");
+    }
+
+    @Test
+    void isLegalMatchesFullGeneration() {
+        Set<Integer> pool = new HashSet<>();
+        // Второй проход проверяет каждую позицию на ходах из всех остальных
+        for (int pass = 0; pass < 2; pass++) {
+            for (String fen : positions)
+                walk(new Pieces(fen), 2, pool);
+        }
+    }
+
+    /**
+     * Обходит дерево ходов и в каждом узле сравнивает взятия и допустимость ходов из пула
+     * с полной генерацией; ходы узлов добавляются в пул
+     * @param pieces позиция
+     * @param depth глубина обхода
+     * @param pool ходы, встреченные в других позициях, или null без проверки допустимости
+     */
+    private static void walk(Pieces pieces, int depth, Set<Integer> pool) {
+        MoveList all = new MoveList();
+        MoveGenerator.generate(pieces, all);
+        Set<Integer> legal = new HashSet<>();
+        Set<Integer> expected = new HashSet<>();
+        for (int i = 0; i < all.size(); i++) {
+            int move = all.get(i);
+            legal.add(move);
+            ID promotion = PackedMove.promotion(move);
+            if (promotion == ID.QUEEN || (promotion == null && PackedMove.isCapture(move)))
+                expected.add(move);
+        }
+
+        Set<Integer> pieceMoves = new HashSet<>();
+        Set<Integer> generated = new HashSet<>();
+        for (int move : legal)
+            generated.add(PackedMove.from(move) * Bitboards.SQUARES + PackedMove.to(move));
+        long own = pieces.getColourBitboard(pieces.getSideToMove());
+        while (own != 0) {
+            int from = Long.numberOfTrailingZeros(own);
+            own &= own - 1;
+            Piece piece = pieces.getPiece(from);
+            for (Coordinate target : piece.getPotentialMoves(pieces))
+                pieceMoves.add(from * Bitboards.SQUARES + Bitboards.square(target));
+        }
+        assertEquals(pieceMoves, generated, "Ходы в позиции " + pieces.toFen());
+
+        MoveList captures = new MoveList();
+        MoveGenerator.generateCaptures(pieces, captures);
+        Set<Integer> actual = new HashSet<>();
+        for (int i = 0; i < captures.size(); i++)
+            actual.add(captures.get(i));
+        assertEquals(expected, actual, "Взятия в позиции " + pieces.toFen());
+
+        if (pool != null) {
+            for (int move : pool)
+                assertEquals(legal.contains(move), MoveGenerator.isLegal(pieces, move),
+                        "Ход " + PackedMove.toString(move) + " в позиции " + pieces.toFen());
+            pool.addAll(legal);
+        }
+
+        if (depth == 1)
+            return;
+        for (int move : legal) {
+            MoveUndo undo = MoveGenerator.make(pieces, move);
+            walk(pieces, depth - 1, pool);
+            pieces.unmake(undo);
+        }
+    }
+
+    /**
+     * Обходит дерево ходов через make/unmake и суммирует память, выделенную вызовами generate
+     * @param pieces позиция
+     * @param depth глубина обхода
+     * @param lists списки ходов по глубинам
+     * @param undos записи для отмены по глубинам
+     * @param threads счетчик выделенной потоком памяти
+     * @param allocated сумма выделенных байт
+     */
+    private static void allocations(Pieces pieces, int depth, MoveList[] lists, MoveUndo[] undos,
+                                    com.sun.management.ThreadMXBean threads, long[] allocated) {
+        MoveList moves = lists[depth];
+        long before = threads.getCurrentThreadAllocatedBytes();
+        int count = MoveGenerator.generate(pieces, moves);
+        allocated[0] += threads.getCurrentThreadAllocatedBytes() - before;
+        if (depth == 1)
+            return;
+        for (int i = 0; i < count; i++) {
+            MoveGenerator.make(pieces, moves.get(i), undos[depth]);
+            allocations(pieces, depth - 1, lists, undos, threads, allocated);
+            pieces.unmake(undos[depth]);
+        }
+    }
+}
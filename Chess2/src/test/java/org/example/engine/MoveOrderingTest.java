@@ -0,0 +1,51 @@
+package org.example.engine;
+
+import org.example.Bitboards;
+import org.example.PackedMove;
+import org.example.Pieces;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверка оценки взятий по MVV-LVA
+ */
+class MoveOrderingTest {
+
+    private final MoveOrdering ordering = new MoveOrdering();
+
+    @Test
+    void cheaperAttackerScoresHigher() {
+        Pieces pieces = new Pieces("4k3/8/8/3r4/2P5/4N3/3Q4/4K3 w - - 0 1");
+        int pawn = ordering.captureScore(pieces, capture("c4", "d5"));
+        int knight = ordering.captureScore(pieces, capture("e3", "d5"));
+        int queen = ordering.captureScore(pieces, capture("d2", "d5"));
+        assertTrue(pawn > knight, "Пешка должна бить раньше коня");
+        assertTrue(knight > queen, "Конь должен бить раньше ферзя");
+    }
+
+    @Test
+    void moreValuableVictimScoresHigher() {
+        Pieces pieces = new Pieces("4k3/8/8/1q1r4/2P5/8/8/4K3 w - - 0 1");
+        assertTrue(ordering.captureScore(pieces, capture("c4", "b5")) > ordering.captureScore(pieces, capture("c4", "d5")));
+    }
+
+    /**
+     * Упаковывает взятие по названиям полей
+     * @param from исходное поле, например "e4"
+     * @param to поле назначения
+     * @return упакованный ход с флагом взятия
+     */
+    private static int capture(String from, String to) {
+        return PackedMove.encode(square(from), square(to), null, PackedMove.CAPTURE);
+    }
+
+    /**
+     * Получает индекс поля по названию
+     * @param name название поля
+     * @return индекс поля
+     */
+    private static int square(String name) {
+        return Bitboards.square(name.charAt(0), name.charAt(1) - '0');
+    }
+}
@@ -0,0 +1,125 @@
+package org.example.engine;
+
+import org.example.MoveUndo;
+import org.example.PackedMove;
+import org.example.Pieces;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Проверка поэтапной выдачи ходов: каждый допустимый ход выдается ровно один раз,
+ * а перебор всех этапов не выделяет памяти
+ */
+class MovePickerTest {
+
+    private static final String[] positions = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8"
+    };
+
+    private static final int depth = 3;
+
+    private final MoveOrdering ordering = new MoveOrdering();
+    private final MovePicker[] pickers = new MovePicker[depth + 1];
+    private final MoveList[] lists = new MoveList[depth + 1];
+    private final MoveUndo[] undos = new MoveUndo[depth + 1];
+
+    MovePickerTest() {
+        for (int i = 0; i <= depth; i++) {
+            pickers[i] = new MovePicker(ordering);
+            lists[i] = new MoveList();
+            undos[i] = new MoveUndo();
+        }
+    }
+
+    @Test
+    void everyLegalMoveIsPickedOnce() {
+        for (String fen : positions)
+            compare(new Pieces(fen), depth);
+    }
+
+    @Test
+    void pickingDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        long[] allocated = new long[1];
+        // Первый проход прогревает код, второй замеряет только выдачу ходов
+        for (int pass = 0; pass < 2; pass++) {
+            allocated[0] = 0;
+            for (String fen : positions)
+                allocations(new Pieces(fen), depth, threads, allocated);
+        }
+        assertEquals(0L, allocated[0], "Выдача ходов выделила память");
+    }
+
+    /**
+     * Сравнивает выданные ходы с полной генерацией в каждом узле дерева.
+     * Первый ход узла служит ходом из таблицы, тихие ходы запоминаются как ходы-убийцы
+     * @param pieces позиция
+     * @param left оставшаяся глубина
+     */
+    private void compare(Pieces pieces, int left) {
+        MoveList all = lists[left];
+        int count = MoveGenerator.generate(pieces, all);
+        Set<Integer> expected = new HashSet<>();
+        for (int i = 0; i < count; i++)
+            expected.add(all.get(i));
+
+        int ply = depth - left;
+        MovePicker picker = pickers[left];
+        picker.init(pieces, count > 0 ? all.get(count - 1) : Search.NO_MOVE, ply, false);
+        Set<Integer> picked = new HashSet<>();
+        for (int move = picker.next(); move != Search.NO_MOVE; move = picker.next())
+            assertTrue(picked.add(move), "Ход " + PackedMove.toString(move) + " выдан дважды в позиции " + pieces.toFen());
+        assertEquals(expected, picked, "Ходы в позиции " + pieces.toFen());
+
+        if (left == 1)
+            return;
+        for (int i = 0; i < count; i++) {
+            int move = all.get(i);
+            if (PackedMove.isQuiet(move))
+                ordering.addCutoff(pieces.getSideToMove(), move, ply + 1, left);
+            MoveGenerator.make(pieces, move, undos[left]);
+            compare(pieces, left - 1);
+            pieces.unmake(undos[left]);
+        }
+    }
+
+    /**
+     * Обходит дерево ходов через make/unmake и суммирует память, выделенную выдачей ходов
+     * @param pieces позиция
+     * @param left оставшаяся глубина
+     * @param threads счетчик выделенной потоком памяти
+     * @param allocated сумма выделенных байт
+     */
+    private void allocations(Pieces pieces, int left, com.sun.management.ThreadMXBean threads, long[] allocated) {
+        MoveList all = lists[left];
+        int count = MoveGenerator.generate(pieces, all);
+        MovePicker picker = pickers[left];
+
+        long before = threads.getCurrentThreadAllocatedBytes();
+        picker.init(pieces, count > 0 ? all.get(0) : Search.NO_MOVE, depth - left, false);
+        while (picker.next() != Search.NO_MOVE) {
+            // перебор всех этапов
+        }
+        allocated[0] += threads.getCurrentThreadAllocatedBytes() - before;
+
+        if (left == 1)
+            return;
+        for (int i = 0; i < count; i++) {
+            MoveGenerator.make(pieces, all.get(i), undos[left]);
+            allocations(pieces, left - 1, threads, allocated);
+            pieces.unmake(undos[left]);
+        }
+    }
+}
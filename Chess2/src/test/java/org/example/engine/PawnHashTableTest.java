@@ -0,0 +1,47 @@
+package org.example.engine;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Проверка записей и статистики пешечного кэша
+ */
+class PawnHashTableTest {
+
+    @Test
+    void storesAndFindsEntries() {
+        PawnHashTable table = new PawnHashTable(1024);
+        long key = 0xDEADBEEFCAFEL;
+        assertEquals(-1, table.probe(key));
+
+        int index = table.store(key, -37, 112, 0x00FF000000001200L);
+        assertEquals(index, table.probe(key));
+        assertEquals(-37, table.getMidgame(index));
+        assertEquals(112, table.getEndgame(index));
+        assertEquals(0x00FF000000001200L, table.getPassedPawns(index));
+        assertEquals(0.5, table.getHitRate());
+    }
+
+    @Test
+    void zeroKeyIsNotFoundInEmptyTable() {
+        PawnHashTable table = new PawnHashTable(16);
+        assertEquals(-1, table.probe(0L));
+        table.store(0L, 1, 2, 0L);
+        assertEquals(1, table.getMidgame(table.probe(0L)));
+        table.clear();
+        assertEquals(-1, table.probe(0L));
+    }
+
+    @Test
+    void collidingKeyReplacesEntry() {
+        PawnHashTable table = new PawnHashTable(16);
+        long first = 5;
+        long second = first + (1L << 40);
+        table.store(first, 10, 20, 0L);
+        assertEquals(-1, table.probe(second));
+        table.store(second, 30, 40, 0L);
+        assertEquals(-1, table.probe(first));
+        assertEquals(30, table.getMidgame(table.probe(second)));
+    }
+}
@@ -0,0 +1,58 @@
+package org.example.engine;
+
+import org.example.ID;
+import org.example.PackedMove;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Проверка упаковки записей таблицы перестановок
+ */
+class TranspositionTableTest {
+
+    @Test
+    void packsAllFields() {
+        TranspositionTable table = new TranspositionTable(1);
+        int move = PackedMove.encode(52, 60, ID.KNIGHT, PackedMove.CAPTURE | PackedMove.DOUBLE_PUSH);
+        int[] scores = {0, 1, -1, 12345, -12345, Search.MATE - 3, -Search.MATE + 3};
+        int[] bounds = {TranspositionTable.EXACT, TranspositionTable.LOWER, TranspositionTable.UPPER};
+
+        long key = 0x9E3779B97F4A7C15L;
+        for (int score : scores) {
+            for (int bound : bounds) {
+                for (int depth = 0; depth <= 255; depth += 51) {
+                    key += 0x632BE59BD9B4E019L;
+                    table.store(key, move, score, depth, bound);
+                    long entry = table.probe(key);
+                    assertEquals(move, TranspositionTable.move(entry));
+                    assertEquals(score, TranspositionTable.score(entry));
+                    assertEquals(depth, TranspositionTable.depth(entry));
+                    assertEquals(bound, TranspositionTable.bound(entry));
+                }
+            }
+        }
+    }
+
+    @Test
+    void otherKeyInSameBucketIsNotFound() {
+        TranspositionTable table = new TranspositionTable(1);
+        long key = 0x123456789ABCDEFL;
+        table.store(key, PackedMove.encode(12, 28, null), 25, 4, TranspositionTable.EXACT);
+        assertEquals(TranspositionTable.EMPTY, table.probe(key ^ (1L << 62)));
+        assertEquals(25, TranspositionTable.score(table.probe(key)));
+    }
+
+    @Test
+    void keepsMoveOfSamePositionWhenStoringNoMove() {
+        TranspositionTable table = new TranspositionTable(1);
+        long key = 42;
+        int move = PackedMove.encode(6, 21, null);
+        table.store(key, move, 10, 3, TranspositionTable.LOWER);
+        table.store(key, Search.NO_MOVE, -5, 5, TranspositionTable.UPPER);
+        long entry = table.probe(key);
+        assertEquals(move, TranspositionTable.move(entry));
+        assertEquals(-5, TranspositionTable.score(entry));
+        assertEquals(TranspositionTable.UPPER, TranspositionTable.bound(entry));
+    }
+}